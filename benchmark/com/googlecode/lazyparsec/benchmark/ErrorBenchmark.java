@@ -0,0 +1,81 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec.benchmark;
+
+import com.googlecode.lazyparsec.Parser;
+import com.googlecode.lazyparsec.error.ParserException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing input that has an error near its end, which is reported as a {@link ParserException}
+ * by {@link Parser#parse(CharSequence)}, and as {@code null}, with no error recorded, by
+ * {@link Parser#parseOrNull(CharSequence)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorBenchmark {
+
+    private static final Parser<Integer> SCANNER = Grammars.scannerCalculator();
+    private static final Parser<Integer> STATEMENTS = Grammars.statements();
+
+    private String expression;
+    private String program;
+
+    @Setup
+    public void setUp() {
+        expression = Inputs.expression(Inputs.random(), 1000, true) + "+*1";
+        program = Inputs.program(Inputs.random(), 200) + "x = = 1;";
+    }
+
+    @Benchmark
+    public ParserException scannerError() {
+        return error(SCANNER, expression);
+    }
+
+    @Benchmark
+    public Integer scannerParseOrNull() {
+        return SCANNER.parseOrNull(expression);
+    }
+
+    @Benchmark
+    public ParserException tokenError() {
+        return error(STATEMENTS, program);
+    }
+
+    private static ParserException error(Parser<?> parser, String source) {
+        try {
+            parser.parse(source);
+        } catch (ParserException e) {
+            return e;
+        }
+        throw new IllegalStateException("no error in " + source);
+    }
+}
@@ -0,0 +1,106 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec.benchmark;
+
+import com.googlecode.lazyparsec.OperatorTable;
+import com.googlecode.lazyparsec.ParseSession;
+import com.googlecode.lazyparsec.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expression parsers built by {@link OperatorTable#build(Parser)}, at character and at token level.
+ * <p/>
+ * <p> The long expression compares the grammar as linked on first use with the grammar linked
+ * ahead by {@link Parser#link()}. The short expressions compare {@link Parser#parse(CharSequence)}
+ * with {@link ParseSession#parse(CharSequence)} and {@link Parser#parseOrNull(CharSequence)};
+ * run with {@code -prof gc} to see the allocation per parse. Running with
+ * {@code -jvmArgsAppend -XX:+UnlockDiagnosticVMOptions -XX:+PrintInlining} shows how deep the
+ * combinator frames are inlined.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    private static final Parser<Integer> SCANNER = Grammars.scannerCalculator();
+    private static final Parser<Integer> LINKED_SCANNER = Grammars.scannerCalculator().link();
+    private static final Parser<Integer> TOKENS = Grammars.tokenCalculator();
+
+    private final ParseSession<Integer> session = SCANNER.newSession();
+
+    private String expression;
+    private String spacedExpression;
+    private String[] shortExpressions;
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        expression = Inputs.expression(Inputs.random(), 5000, true);
+        spacedExpression = Inputs.expression(Inputs.random(), 5000, false);
+        shortExpressions = new String[1024];
+        for (int i = 0; i < shortExpressions.length; i++) {
+            shortExpressions[i] = Inputs.expression(Inputs.random(), 1 + i % 8, true);
+        }
+    }
+
+    @Benchmark
+    public Integer scanner() {
+        return SCANNER.parse(expression);
+    }
+
+    @Benchmark
+    public Integer linkedScanner() {
+        return LINKED_SCANNER.parse(expression);
+    }
+
+    @Benchmark
+    public Integer tokens() {
+        return TOKENS.parse(spacedExpression);
+    }
+
+    @Benchmark
+    public Integer shortParse() {
+        return SCANNER.parse(nextShortExpression());
+    }
+
+    @Benchmark
+    public Integer shortSessionParse() {
+        return session.parse(nextShortExpression());
+    }
+
+    @Benchmark
+    public Integer shortParseOrNull() {
+        return SCANNER.parseOrNull(nextShortExpression());
+    }
+
+    private String nextShortExpression() {
+        return shortExpressions[next++ & (shortExpressions.length - 1)];
+    }
+}
@@ -0,0 +1,145 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec.benchmark;
+
+import com.googlecode.lazyparsec.OperatorTable;
+import com.googlecode.lazyparsec.Parser;
+import com.googlecode.lazyparsec.Parsers;
+import com.googlecode.lazyparsec.Scanners;
+import com.googlecode.lazyparsec.Terminals;
+import com.googlecode.totallylazy.Callable1;
+import com.googlecode.totallylazy.Callable2;
+
+import java.util.List;
+
+/**
+ * The grammars measured by the benchmarks.
+ */
+final class Grammars {
+
+    static final Terminals CALCULATOR_TERMINALS = Terminals.operators("+", "-", "*", "(", ")");
+
+    static final Terminals STATEMENT_TERMINALS = Terminals.caseSensitive(
+            new String[]{"+", "*", "==", "=", "(", ")", ";"},
+            new String[]{"if", "then", "else", "while", "do", "return"});
+
+    /**
+     * Tokenizes the programs generated by {@link Inputs#program(java.util.Random, int)}.
+     */
+    static final Parser<?> STATEMENT_TOKENIZER = Parsers.or(
+            Terminals.IntegerLiteral.TOKENIZER, Terminals.StringLiteral.DOUBLE_QUOTE_TOKENIZER,
+            STATEMENT_TERMINALS.tokenizer());
+
+    private static final Callable1<String, Integer> INTEGER = new Callable1<String, Integer>() {
+        public Integer call(String s) {
+            return Integer.valueOf(s);
+        }
+    };
+
+    private static final Callable1<Integer, Integer> NEGATE = new Callable1<Integer, Integer>() {
+        public Integer call(Integer v) {
+            return -v;
+        }
+    };
+
+    private static final Callable2<Integer, Integer, Integer> PLUS = new Callable2<Integer, Integer, Integer>() {
+        public Integer call(Integer a, Integer b) {
+            return a + b;
+        }
+    };
+
+    private static final Callable2<Integer, Integer, Integer> MINUS = new Callable2<Integer, Integer, Integer>() {
+        public Integer call(Integer a, Integer b) {
+            return a - b;
+        }
+    };
+
+    private static final Callable2<Integer, Integer, Integer> TIMES = new Callable2<Integer, Integer, Integer>() {
+        public Integer call(Integer a, Integer b) {
+            return a * b;
+        }
+    };
+
+    private static final Callable2<Object, Object, Object> LEFT = new Callable2<Object, Object, Object>() {
+        public Object call(Object a, Object b) {
+            return a;
+        }
+    };
+
+    private Grammars() {
+    }
+
+    /**
+     * Evaluates the compact expressions of {@link Inputs#expression(java.util.Random, int, boolean)}
+     * at character level.
+     */
+    static Parser<Integer> scannerCalculator() {
+        Parser.Reference<Integer> expression = Parser.newReference();
+        Parser<Integer> atom = Parsers.or(
+                Scanners.INTEGER.map(INTEGER), expression.lazy().between(Scanners.isChar('('), Scanners.isChar(')')));
+        Parser<Integer> parser = new OperatorTable<Integer>()
+                .prefix(Scanners.isChar('-').retn(NEGATE), 30)
+                .infixl(Scanners.isChar('*').retn(TIMES), 20)
+                .infixl(Scanners.isChar('+').retn(PLUS), 10)
+                .infixl(Scanners.isChar('-').retn(MINUS), 10)
+                .build(atom);
+        expression.set(parser);
+        return parser;
+    }
+
+    /**
+     * Evaluates the expressions of {@link Inputs#expression(java.util.Random, int, boolean)} at
+     * token level.
+     */
+    static Parser<Integer> tokenCalculator() {
+        Parser.Reference<Integer> expression = Parser.newReference();
+        Parser<Integer> atom = Parsers.or(
+                Terminals.IntegerLiteral.PARSER.map(INTEGER),
+                expression.lazy().between(CALCULATOR_TERMINALS.token("("), CALCULATOR_TERMINALS.token(")")));
+        Parser<Integer> parser = new OperatorTable<Integer>()
+                .prefix(CALCULATOR_TERMINALS.token("-").retn(NEGATE), 30)
+                .infixl(CALCULATOR_TERMINALS.token("*").retn(TIMES), 20)
+                .infixl(CALCULATOR_TERMINALS.token("+").retn(PLUS), 10)
+                .infixl(CALCULATOR_TERMINALS.token("-").retn(MINUS), 10)
+                .build(atom);
+        expression.set(parser);
+        return parser.from(
+                Parsers.or(Terminals.IntegerLiteral.TOKENIZER, CALCULATOR_TERMINALS.tokenizer()), Scanners.WHITESPACES.skipMany());
+    }
+
+    /**
+     * Parses the programs of {@link Inputs#program(java.util.Random, int)} into the number of
+     * statements.
+     */
+    static Parser<Integer> statements() {
+        Parser<Object> operand = Parsers.<Object>or(
+                Terminals.IntegerLiteral.PARSER, Terminals.StringLiteral.PARSER, Terminals.Identifier.PARSER);
+        Parser<Object> expression = new OperatorTable<Object>()
+                .infixl(STATEMENT_TERMINALS.token("*").retn(LEFT), 20)
+                .infixl(STATEMENT_TERMINALS.token("+").retn(LEFT), 10)
+                .build(operand);
+        Parser<?> assignment = Parsers.sequence(
+                Terminals.Identifier.PARSER, STATEMENT_TERMINALS.token("="), expression, STATEMENT_TERMINALS.token(";"));
+        Parser<?> conditional = Parsers.sequence(
+                STATEMENT_TERMINALS.token("if"), expression, STATEMENT_TERMINALS.token("=="), expression,
+                STATEMENT_TERMINALS.token("then"), assignment, STATEMENT_TERMINALS.token("else"), assignment);
+        return Parsers.<Object>or(conditional, assignment).many().map(new Callable1<List<Object>, Integer>() {
+            public Integer call(List<Object> statements) {
+                return statements.size();
+            }
+        }).from(STATEMENT_TOKENIZER, Scanners.JAVA_DELIMITER);
+    }
+}
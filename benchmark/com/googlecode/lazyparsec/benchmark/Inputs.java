@@ -0,0 +1,154 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generates the inputs of the benchmarks from a fixed seed, so that every run parses the same
+ * text and no input file is needed.
+ */
+final class Inputs {
+
+    private static final String[] KEYWORDS = {"if", "then", "else", "while", "do", "return"};
+
+    private Inputs() {
+    }
+
+    static Random random() {
+        return new Random(20111017L);
+    }
+
+    /**
+     * An arithmetic expression with {@code operators} binary operators, such as
+     * {@code 12 * (3 + -7) - 40}, with no whitespace if {@code compact}.
+     */
+    static String expression(Random random, int operators, boolean compact) {
+        StringBuilder builder = new StringBuilder();
+        expression(random, operators, compact ? "" : " ", builder);
+        return builder.toString();
+    }
+
+    private static void expression(Random random, int operators, String space, StringBuilder builder) {
+        if (operators == 0) {
+            if (random.nextInt(8) == 0) builder.append('-');
+            builder.append(random.nextInt(1000));
+            return;
+        }
+        int left = random.nextInt(operators);
+        boolean parens = random.nextInt(4) == 0;
+        if (parens) builder.append('(');
+        expression(random, left, space, builder);
+        builder.append(space).append("+-*".charAt(random.nextInt(3))).append(space);
+        expression(random, operators - 1 - left, space, builder);
+        if (parens) builder.append(')');
+    }
+
+    static final int IDENTIFIERS = 0;
+    static final int INTEGERS = 1;
+    static final int DECIMALS = 2;
+    static final int STRINGS = 3;
+    static final int MIXED = 4;
+
+    /**
+     * {@code count} words separated by spaces: identifiers, integers, decimals or string literals
+     * as selected by {@code kind}, or all of them mixed.
+     */
+    static String words(Random random, int count, int kind) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(' ');
+            switch (kind == MIXED ? random.nextInt(MIXED) : kind) {
+                case IDENTIFIERS:
+                    builder.append(identifier(random));
+                    break;
+                case INTEGERS:
+                    builder.append(random.nextInt(100000));
+                    break;
+                case DECIMALS:
+                    builder.append(random.nextInt(1000)).append('.').append(random.nextInt(1000));
+                    break;
+                default:
+                    builder.append('"').append(identifier(random)).append(' ').append(identifier(random)).append('"');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A program of {@code count} statements in the language of {@link Grammars#statements()}, with
+     * comments.
+     */
+    static String program(Random random, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    builder.append("if ").append(operand(random)).append(" == ").append(operand(random))
+                            .append(" then ");
+                    assignment(random, builder);
+                    builder.append(" else ");
+                    assignment(random, builder);
+                    break;
+                case 1:
+                    builder.append("// ").append(identifier(random)).append('\n');
+                    assignment(random, builder);
+                    break;
+                case 2:
+                    builder.append("/* ").append(identifier(random)).append(" */ ");
+                    assignment(random, builder);
+                    break;
+                default:
+                    assignment(random, builder);
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static void assignment(Random random, StringBuilder builder) {
+        builder.append(identifier(random)).append(" = ").append(operand(random));
+        for (int i = random.nextInt(4); i > 0; i--) {
+            builder.append(random.nextBoolean() ? " + " : " * ").append(operand(random));
+        }
+        builder.append(';');
+    }
+
+    private static String operand(Random random) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return String.valueOf(random.nextInt(1000));
+            case 1:
+                return "\"" + identifier(random) + "\"";
+            default:
+                return identifier(random);
+        }
+    }
+
+    private static String identifier(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int length = 1 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        if (random.nextInt(3) == 0) builder.append(random.nextInt(100));
+        String identifier = builder.toString();
+        for (String keyword : KEYWORDS) {
+            if (keyword.equals(identifier)) return identifier + '_';
+        }
+        return identifier;
+    }
+}
@@ -0,0 +1,102 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec.benchmark;
+
+import com.googlecode.lazyparsec.Parser;
+import com.googlecode.lazyparsec.Parsers;
+import com.googlecode.lazyparsec.Scanners;
+import com.googlecode.lazyparsec.misc.Mapper;
+import com.googlecode.totallylazy.Callable3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and running the parsers of {@link Mapper} and {@link Mapper#curry(Class, Object[])}, which find the
+ * {@code map} method or the constructor by reflection, next to the same parser written with
+ * {@link Parsers#sequence(Parser, Parser, Parser, Callable3)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    public static final class Pair {
+        final String name;
+        final String value;
+
+        public Pair(String name, String value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private static final class PairMapper extends Mapper<Pair> {
+        @SuppressWarnings("unused")
+        Pair map(String name, String value) {
+            return new Pair(name, value);
+        }
+    }
+
+    private static final Parser<Pair> MAPPED =
+            new PairMapper().sequence(Scanners.IDENTIFIER, Mapper._(Scanners.isChar('=')), Scanners.INTEGER);
+    private static final Parser<Pair> CURRIED =
+            Mapper.<Pair>curry(Pair.class).sequence(Scanners.IDENTIFIER, Mapper._(Scanners.isChar('=')), Scanners.INTEGER);
+    private static final Parser<Pair> SEQUENCE = Parsers.sequence(
+            Scanners.IDENTIFIER, Scanners.isChar('='), Scanners.INTEGER, new Callable3<String, Void, String, Pair>() {
+                public Pair call(String name, Void eq, String value) {
+                    return new Pair(name, value);
+                }
+            });
+
+    @Benchmark
+    public Parser<Pair> mapperConstruction() {
+        return new PairMapper().sequence(Scanners.IDENTIFIER, Mapper._(Scanners.isChar('=')), Scanners.INTEGER);
+    }
+
+    @Benchmark
+    public Parser<Pair> curryConstruction() {
+        return Mapper.<Pair>curry(Pair.class)
+                .sequence(Scanners.IDENTIFIER, Mapper._(Scanners.isChar('=')), Scanners.INTEGER);
+    }
+
+    @Benchmark
+    public Pair mapperParse() {
+        return MAPPED.parse("answer=42");
+    }
+
+    @Benchmark
+    public Pair curryParse() {
+        return CURRIED.parse("answer=42");
+    }
+
+    @Benchmark
+    public Pair sequenceParse() {
+        return SEQUENCE.parse("answer=42");
+    }
+}
@@ -0,0 +1,100 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec.benchmark;
+
+import com.googlecode.lazyparsec.Parser;
+import com.googlecode.lazyparsec.Scanners;
+import com.googlecode.lazyparsec.pattern.CharacterPredicates;
+import com.googlecode.lazyparsec.pattern.Patterns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Character level primitives of {@link Scanners} and {@link Patterns}, each run over a few
+ * thousand words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScannerBenchmark {
+
+    private static final Parser<List<String>> IDENTIFIERS = Scanners.IDENTIFIER.sepBy(Scanners.isChar(' '));
+    private static final Parser<List<String>> INTEGERS = Scanners.INTEGER.sepBy(Scanners.isChar(' '));
+    private static final Parser<List<String>> DECIMALS = Scanners.DECIMAL.sepBy(Scanners.isChar(' '));
+    private static final Parser<List<String>> STRINGS = Scanners.DOUBLE_QUOTE_STRING.sepBy(Scanners.isChar(' '));
+    private static final Parser<Void> SKIP_PATTERN =
+            Scanners.pattern(Patterns.many(CharacterPredicates.notChar('\n')), "line");
+    private static final Parser<Void> SKIP_PREDICATE = Scanners.many(CharacterPredicates.notChar('\n'));
+
+    private String identifiers;
+    private String integers;
+    private String decimals;
+    private String strings;
+    private String words;
+
+    @Setup
+    public void setUp() {
+        identifiers = Inputs.words(Inputs.random(), 5000, Inputs.IDENTIFIERS);
+        integers = Inputs.words(Inputs.random(), 5000, Inputs.INTEGERS);
+        decimals = Inputs.words(Inputs.random(), 5000, Inputs.DECIMALS);
+        strings = Inputs.words(Inputs.random(), 5000, Inputs.STRINGS);
+        words = Inputs.words(Inputs.random(), 5000, Inputs.MIXED);
+    }
+
+    @Benchmark
+    public List<String> identifiers() {
+        return IDENTIFIERS.parse(identifiers);
+    }
+
+    @Benchmark
+    public List<String> integers() {
+        return INTEGERS.parse(integers);
+    }
+
+    @Benchmark
+    public List<String> decimals() {
+        return DECIMALS.parse(decimals);
+    }
+
+    @Benchmark
+    public List<String> stringLiterals() {
+        return STRINGS.parse(strings);
+    }
+
+    @Benchmark
+    public Void skipPattern() {
+        return SKIP_PATTERN.parse(words);
+    }
+
+    @Benchmark
+    public Void skipPredicate() {
+        return SKIP_PREDICATE.parse(words);
+    }
+}
@@ -28,17 +28,27 @@ final class ArrayParser extends Parser<Object[]> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         Object[] ret = new Object[parsers.length];
         for (int i = 0; i < parsers.length; i++) {
             Parser<?> parser = parsers[i];
-            if (!parser.run(context)) return false;
+            if (!parser.apply(context)) return false;
             ret[i] = parser.getReturn(context);
         }
         context.result = ret;
         return true;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return parsers;
+    }
+
+    @Override
+    Parser<Object[]> withChildren(Parser<?>[] children) {
+        return new ArrayParser(children);
+    }
+
     @Override
     public String toString() {
         return "array";
@@ -23,15 +23,28 @@ final class AtomicParser<T> extends Parser<T> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         int at = context.at;
         int step = context.step;
-        boolean r = p.run(context);
+        context.mark();
+        boolean r = p.apply(context);
+        context.unmark();
         if (r) context.step = step + 1;
         else context.setAt(step, at);
         return r;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{p};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new AtomicParser<T>((Parser<T>) children[0]);
+    }
+
     @Override
     public String toString() {
         return p.toString();
@@ -26,22 +26,48 @@ final class BestParser<T> extends Parser<T> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         final Object result = context.result;
         final int step = context.step;
         final int at = context.at;
+        final boolean cut = context.cut;
+        final int choice = context.choice;
+        context.cut = false;
+        context.choice = context.mark();
         for (int i = 0; i < parsers.length; i++) {
             Parser<? extends T> parser = parsers[i];
-            if (parser.run(context)) {
-                ParserInternals.runForBestFit(order, parsers, i + 1, context, result, step, at);
+            if (parser.apply(context)) {
+                // a committed alternative is not compared with the rest.
+                if (!context.cut) {
+                    ParserInternals.runForBestFit(order, parsers, i + 1, context, result, step, at);
+                }
+                context.cut = cut;
+                context.choice = choice;
+                context.unmark();
                 return true;
             }
+            if (context.cut) break;
             // in alternate, we do not care partial match.
+            if (context.monitor != null) context.monitor.rewinding(context, at);
             context.set(step, at, result);
         }
+        context.cut = cut;
+        context.choice = choice;
+        context.unmark();
         return false;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return parsers;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new BestParser<T>((Parser<? extends T>[]) children, order);
+    }
+
     @Override
     public String toString() {
         return order.toString();
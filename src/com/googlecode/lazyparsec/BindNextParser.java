@@ -24,8 +24,8 @@ import com.googlecode.totallylazy.Callable1;
  * @author Ben Yu
  */
 final class BindNextParser<From, To> extends Parser<To> {
-    private final Parser<? extends From> parser;
-    private final Callable1<? super From, ? extends Parser<? extends To>> callable1;
+    final Parser<? extends From> parser;
+    final Callable1<? super From, ? extends Parser<? extends To>> callable1;
 
     BindNextParser(
             Parser<? extends From> parser, Callable1<? super From, ? extends Parser<? extends To>> next) {
@@ -35,11 +35,22 @@ final class BindNextParser<From, To> extends Parser<To> {
 
     @Override
     boolean apply(ParseContext context) throws Exception {
-        if (!parser.run(context))
+        if (!parser.apply(context))
             return false;
         return Parsers.runNext(context, callable1);
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<To> withChildren(Parser<?>[] children) {
+        return new BindNextParser<From, To>((Parser<? extends From>) children[0], callable1);
+    }
+
     @Override
     public String toString() {
         return callable1.toString();
@@ -0,0 +1,101 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.pattern.Pattern;
+
+/**
+ * A jump table from the current ASCII character to the alternatives that may succeed there.
+ * Alternatives whose first character is not known always run, as do all alternatives at EOF, on
+ * non-ASCII characters and on token level.
+ */
+final class CharDispatch extends Dispatch {
+    private static final int ASCII = 128;
+
+    private final int[][] orders;
+
+    private CharDispatch(Object[][] expected, int[][] orders) {
+        super(expected);
+        this.orders = orders;
+    }
+
+    /**
+     * Returns the jump table for {@code alternatives}, or {@code null} if no alternative can be
+     * skipped by looking at the current character.
+     */
+    static CharDispatch of(Parser<?>[] alternatives) {
+        Object[][] expected = new Object[alternatives.length][];
+        FirstChars[] firsts = new FirstChars[alternatives.length];
+        boolean skips = false;
+        for (int i = 0; i < alternatives.length; i++) {
+            firsts[i] = new FirstChars();
+            expected[i] = expected(alternatives[i], firsts[i]);
+            skips |= expected[i] != null;
+        }
+        if (!skips) return null;
+        int[][] orders = new int[ASCII][];
+        boolean[] runs = new boolean[alternatives.length];
+        for (int c = 0; c < ASCII; c++) {
+            for (int i = 0; i < alternatives.length; i++) {
+                runs[i] = firsts[i].chars[c];
+            }
+            orders[c] = order(expected, runs);
+        }
+        return new CharDispatch(expected, orders);
+    }
+
+    @Override
+    int[] order(ParseContext context) {
+        if (!(context instanceof ScannerState) || context.isEof()) return all;
+        char c = context.peekChar();
+        return c < ASCII ? orders[c] : all;
+    }
+
+    private static final class FirstChars implements First {
+        final boolean[] chars = new boolean[ASCII];
+
+        public Object[] expected(Parser<?> leaf) {
+            if (leaf instanceof IsCharScanner) {
+                IsCharScanner scanner = (IsCharScanner) leaf;
+                for (int c = 0; c < ASCII; c++) {
+                    chars[c] |= scanner.predicate.matches((char) c);
+                }
+                return new Object[]{scanner.name};
+            }
+            if (leaf instanceof PatternScanner) {
+                PatternScanner scanner = (PatternScanner) leaf;
+                return pattern(scanner.pattern, scanner.name);
+            }
+            if (leaf instanceof PatternSequenceScanner) {
+                PatternSequenceScanner scanner = (PatternSequenceScanner) leaf;
+                return pattern(scanner.patterns[0], scanner.names[0]);
+            }
+            if (leaf instanceof SkipPatternScanner) {
+                SkipPatternScanner scanner = (SkipPatternScanner) leaf;
+                return scanner.min == 0 ? null : pattern(scanner.pattern, scanner.name);
+            }
+            return null;
+        }
+
+        private Object[] pattern(Pattern pattern, String name) {
+            if (pattern.mayMatchEmpty()) return null;
+            for (int c = 0; c < ASCII; c++) {
+                chars[c] |= pattern.mayStartWith((char) c);
+            }
+            return new Object[]{name};
+        }
+    }
+}
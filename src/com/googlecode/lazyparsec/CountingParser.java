@@ -0,0 +1,51 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Counts the runs of a {@link Parser} for {@link PathologicalInputs}.
+ */
+final class CountingParser<T> extends Parser<T> {
+    private final Parser<T> parser;
+    private final PathologicalInputs.StepCounter counter;
+
+    CountingParser(Parser<T> parser, PathologicalInputs.StepCounter counter) {
+        this.parser = parser;
+        this.counter = counter;
+    }
+
+    @Override
+    boolean apply(ParseContext context) throws Exception {
+        counter.step();
+        return parser.apply(context);
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new CountingParser<T>((Parser<T>) children[0], counter);
+    }
+
+    @Override
+    public String toString() {
+        return parser.toString();
+    }
+}
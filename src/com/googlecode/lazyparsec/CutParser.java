@@ -0,0 +1,39 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Commits to the current alternative, see {@link Parsers#cut()}.
+ */
+final class CutParser extends Parser<Void> {
+    static final CutParser INSTANCE = new CutParser();
+
+    private CutParser() {
+    }
+
+    @Override
+    boolean apply(ParseContext context) {
+        context.cut = true;
+        if (context.choice >= 0) context.giveUp(context.choice);
+        context.result = null;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "cut";
+    }
+}
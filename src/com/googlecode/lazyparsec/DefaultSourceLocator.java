@@ -31,7 +31,7 @@ import com.googlecode.lazyparsec.util.IntList;
  */
 final class DefaultSourceLocator implements SourceLocator {
 
-    private final CharSequence source;
+    private CharSequence source;
 
     /**
      * The line break character.
@@ -150,6 +150,16 @@ final class DefaultSourceLocator implements SourceLocator {
         return (index < nextIndex) ? lookup(index) : scanTo(index);
     }
 
+    /**
+     * Starts over locating indices in {@code source}, discarding the line breaks scanned so far.
+     */
+    void reset(CharSequence source) {
+        this.source = source;
+        this.lineBreakIndices.clear();
+        this.nextIndex = 0;
+        this.nextColumnIndex = 0;
+    }
+
     /**
      * Creates a {@link DefaultSourceLocator} object.
      *
@@ -31,6 +31,12 @@ final class DelimitedListParser<T> extends DelimitedParser<T, List<T>> {
         this.listFactory = listFactory;
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<List<T>> withChildren(Parser<?>[] children) {
+        return new DelimitedListParser<T>((Parser<T>) children[0], children[1], listFactory);
+    }
+
     @Override
     List<T> begin() {
         return listFactory.newList();
@@ -31,7 +31,7 @@ class DelimitedParser<T, R> extends Parser<R> {
     }
 
     @Override
-    boolean apply(final ParseContext context) {
+    boolean apply(final ParseContext context) throws Exception {
         final R result = begin();
         for (; ; ) {
             final int step0 = context.step;
@@ -65,6 +65,17 @@ class DelimitedParser<T, R> extends Parser<R> {
     void element(ParseContext context, R result) {
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser, delim};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<R> withChildren(Parser<?>[] children) {
+        return new DelimitedParser<T, R>((Parser<T>) children[0], children[1]);
+    }
+
     @Override
     public String toString() {
         return "delimited";
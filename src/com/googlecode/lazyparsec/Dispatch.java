@@ -0,0 +1,127 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import java.util.ArrayList;
+
+/**
+ * Picks the alternatives of an {@link OrParser} or {@link SumParser} that may succeed at the current
+ * position. Alternatives that are known to fail there are not run; the errors they would have
+ * reported are raised instead, in the same order, so that error messages don't change.
+ */
+abstract class Dispatch {
+    final int[] all;
+    private final Object[][] expected;
+
+    Dispatch(Object[][] expected) {
+        this.all = inOrder(expected.length);
+        this.expected = expected;
+    }
+
+    /**
+     * Returns the dispatch for {@code alternatives}, or {@code null} if no alternative can be
+     * skipped by looking at the current character or token.
+     */
+    static Dispatch of(Parser<?>[] alternatives) {
+        Dispatch dispatch = CharDispatch.of(alternatives);
+        return dispatch != null ? dispatch : TokenDispatch.of(alternatives);
+    }
+
+    /**
+     * Returns the indices of the alternatives to run at the current position, in order. A negative
+     * entry {@code ~i} means alternative {@code i} fails and is to be {@link #skip skipped}.
+     */
+    abstract int[] order(ParseContext context);
+
+    /**
+     * Reports the errors of the alternative at the negative {@link #order} entry {@code entry}.
+     */
+    final void skip(ParseContext context, int entry) {
+        for (Object name : expected[~entry]) {
+            context.expected(name);
+        }
+    }
+
+    static int[] inOrder(int n) {
+        int[] indices = new int[n];
+        for (int i = 0; i < n; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+
+    /**
+     * Returns the order of {@code expected.length} alternatives where those with known errors only
+     * run if {@code runs} says so.
+     */
+    static int[] order(Object[][] expected, boolean[] runs) {
+        int[] order = new int[expected.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = expected[i] == null || runs[i] ? i : ~i;
+        }
+        return order;
+    }
+
+    /**
+     * Knows what the leaf parsers of one level, characters or tokens, may succeed on.
+     */
+    interface First {
+        /**
+         * Records what {@code leaf} may succeed on and returns what it reports as expected when it
+         * fails on anything else, or {@code null} if not known.
+         */
+        Object[] expected(Parser<?> leaf);
+    }
+
+    /**
+     * Returns what {@code parser} reports as expected when it fails without consuming, recording
+     * what it may succeed on in {@code first}, or {@code null} if not known.
+     */
+    static Object[] expected(Parser<?> parser, First first) {
+        while (startsWithFirstChild(parser) && parser.children().length > 0) {
+            parser = parser.children()[0];
+        }
+        if (parser instanceof ExpectParser) {
+            return new Object[]{((ExpectParser<?>) parser).name};
+        }
+        if (parser instanceof OrParser || parser instanceof SumParser) {
+            ArrayList<Object> names = new ArrayList<Object>();
+            for (Parser<?> alternative : parser.children()) {
+                Object[] expected = expected(alternative, first);
+                if (expected == null) return null;
+                for (Object name : expected) {
+                    names.add(name);
+                }
+            }
+            return names.toArray();
+        }
+        return first.expected(parser);
+    }
+
+    /**
+     * Whether {@code parser} fails with the errors of its first child when that child fails.
+     */
+    private static boolean startsWithFirstChild(Parser<?> parser) {
+        return parser instanceof SequenceParser || parser instanceof Sequence2Parser
+                || parser instanceof Sequence3Parser || parser instanceof Sequence4Parser
+                || parser instanceof Sequence5Parser || parser instanceof MapParser
+                || parser instanceof ReturnSourceParser || parser instanceof ToTokenParser
+                || parser instanceof AtomicParser || parser instanceof BindNextParser
+                || parser instanceof ProfiledParser || parser instanceof ListenedRuleParser
+                || parser instanceof ListenedAlternativeParser || parser instanceof ListenedTokenParser
+                || parser instanceof ListeningParser || parser instanceof CountingParser;
+    }
+}
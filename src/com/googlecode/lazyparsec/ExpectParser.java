@@ -21,7 +21,7 @@ package com.googlecode.lazyparsec;
  * @author Ben Yu
  */
 final class ExpectParser<T> extends Parser<T> {
-    private final String name;
+    final String name;
 
     ExpectParser(String name) {
         this.name = name;
@@ -23,6 +23,7 @@ package com.googlecode.lazyparsec;
 final class GetIndexParser extends Parser<Integer> {
     @Override
     boolean apply(final ParseContext context) {
+        context.indexed = true;
         context.result = context.getIndex();
         return true;
     }
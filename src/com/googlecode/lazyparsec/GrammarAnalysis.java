@@ -0,0 +1,508 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.pattern.Pattern;
+import com.googlecode.lazyparsec.util.Lists;
+import com.googlecode.totallylazy.Predicate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The problems found in a grammar by {@link Parsers#analyze(Parser)} without parsing any input,
+ * most expensive first.
+ * <p/>
+ * <p> The analysis knows what the parsers of {@link Scanners}, {@link Patterns patterns} and token
+ * level parsers of {@link Terminals} start with, and gives up on anything else, such as parsers
+ * built while parsing by {@link Parser#next(com.googlecode.totallylazy.Callable1)}. Costs are
+ * estimates meant to rank the findings, where problems inside rules referenced through
+ * {@link Parser.Reference#lazy()}, which typically run once per level of nesting, cost more.
+ */
+public final class GrammarAnalysis {
+
+    /**
+     * A problem found in a grammar.
+     */
+    public static final class Finding {
+
+        public enum Kind {
+            /**
+             * A rule that runs itself again before consuming any input. It only parses in
+             * {@link Parser#packrat()} mode, and otherwise recurses until it fails.
+             */
+            LEFT_RECURSION(1000),
+
+            /**
+             * A repetition of a parser that may succeed without consuming input, which stops as
+             * soon as it does, without the parser having failed.
+             */
+            EMPTY_LOOP(500),
+
+            /**
+             * Alternatives that may start with the same input, so that the later ones scan again
+             * what the earlier ones failed on.
+             */
+            OVERLAPPING_ALTERNATIVES(10),
+
+            /**
+             * An {@link Parser#atomic()} parser that may give back input of any length when it fails.
+             */
+            ATOMIC_BACKTRACKING(20);
+
+            final int cost;
+
+            Kind(int cost) {
+                this.cost = cost;
+            }
+        }
+
+        private final Kind kind;
+        private final String rule;
+        private final String message;
+        private final int cost;
+
+        Finding(Kind kind, String rule, String message, int cost) {
+            this.kind = kind;
+            this.rule = rule;
+            this.message = message;
+            this.cost = cost;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * The name of the innermost {@link Parser#label(String) labelled} rule the problem is in, or
+         * of the parser the problem is found at if not labelled.
+         */
+        public String getRule() {
+            return rule;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * The estimated cost, only meaningful compared with the cost of other findings.
+         */
+        public int getCost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%6d %-24s %s: %s", cost, kind, rule, message);
+        }
+    }
+
+    private static final Comparator<Finding> BY_COST = new Comparator<Finding>() {
+        public int compare(Finding a, Finding b) {
+            return b.cost - a.cost;
+        }
+    };
+
+    private final List<Finding> findings;
+
+    GrammarAnalysis(List<Finding> findings) {
+        this.findings = findings;
+    }
+
+    /**
+     * Returns the findings, most expensive first.
+     */
+    public List<Finding> getFindings() {
+        return Collections.unmodifiableList(findings);
+    }
+
+    /**
+     * Returns the report of the findings, one per line, most expensive first.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Finding finding : findings) {
+            report.append(finding).append(String.format("%n"));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Analyzes the grammar of {@code parser}.
+     */
+    static GrammarAnalysis of(Parser<?> parser) {
+        Analyzer analyzer = new Analyzer();
+        analyzer.walk(parser, null, 0);
+        Collections.sort(analyzer.findings, BY_COST);
+        return new GrammarAnalysis(analyzer.findings);
+    }
+
+    /**
+     * What a parser may start with: ASCII characters, token values, or anything if not known,
+     * and whether it is known to possibly succeed without consuming input, or not known either way.
+     */
+    private static final class First {
+        final BitSet chars = new BitSet(128);
+        final Set<Object> tokens = new HashSet<Object>();
+        boolean unknown = false;
+        boolean empty = false;
+        boolean emptyUnknown = false;
+
+        First addAll(First that) {
+            chars.or(that.chars);
+            tokens.addAll(that.tokens);
+            unknown |= that.unknown;
+            return this;
+        }
+
+        /**
+         * Takes whether {@code that} may succeed without consuming input.
+         */
+        First emptyAs(First that) {
+            empty = that.empty;
+            emptyUnknown = that.emptyUnknown;
+            return this;
+        }
+
+        /**
+         * Whether it may succeed without consuming input, or is not known not to.
+         */
+        boolean mayBeEmpty() {
+            return empty || emptyUnknown;
+        }
+
+        /**
+         * Describes what both {@code this} and {@code that} may start with, or returns {@code null}
+         * if they are not known to overlap.
+         */
+        String overlap(First that) {
+            BitSet chars = (BitSet) this.chars.clone();
+            chars.and(that.chars);
+            ArrayList<String> common = Lists.arrayList();
+            for (int c = chars.nextSetBit(0); c >= 0; c = chars.nextSetBit(c + 1)) {
+                common.add(describe((char) c));
+            }
+            for (Object token : tokens) {
+                if (that.tokens.contains(token)) common.add(token.toString());
+            }
+            if (common.isEmpty()) return null;
+            if (common.size() > 5) return common.subList(0, 5) + " and " + (common.size() - 5) + " more";
+            return common.toString();
+        }
+
+        private static String describe(char c) {
+            if (c == '\n') return "\\n";
+            if (c == '\t') return "\\t";
+            if (c < ' ' || c > '~') return "\\u" + String.format("%04x", (int) c);
+            return String.valueOf(c);
+        }
+    }
+
+    private static final class Analyzer {
+        final ArrayList<Finding> findings = Lists.arrayList();
+        private final IdentityHashMap<Parser<?>, Boolean> walked = new IdentityHashMap<Parser<?>, Boolean>();
+        private final IdentityHashMap<Parser<?>, First> firsts = new IdentityHashMap<Parser<?>, First>();
+        private final IdentityHashMap<Parser<?>, Boolean> leftRecursive = new IdentityHashMap<Parser<?>, Boolean>();
+        private final ArrayList<Parser<?>> inProgress = Lists.arrayList();
+
+        /**
+         * Reports the problems of {@code parser} and of the parsers it runs.
+         *
+         * @param rule       the innermost enclosing labelled rule, or {@code null}.
+         * @param references the number of enclosing references.
+         */
+        void walk(Parser<?> parser, String rule, int references) {
+            if (parser == null || walked.containsKey(parser)) return;
+            walked.put(parser, true);
+            if (parser instanceof LazyParser) {
+                first(parser);
+                walk(((LazyParser<?>) parser).target(), rule, references + 1);
+                return;
+            }
+            if (isLabel(parser)) {
+                rule = ((ExpectParser<?>) parser.children()[1]).name;
+            }
+            String name = rule == null ? parser.toString() : rule;
+            int weight = 1 + references * 10;
+            if (parser instanceof OrParser || parser instanceof SumParser || parser instanceof BestParser) {
+                if (!isLabel(parser)) overlaps(parser, name, weight);
+            } else if (isLoop(parser) && first(parser.children()[0]).empty) {
+                findings.add(new Finding(Finding.Kind.EMPTY_LOOP, name,
+                        parser.children()[0] + " is repeated but may succeed without consuming input",
+                        Finding.Kind.EMPTY_LOOP.cost * weight));
+            } else if (parser instanceof AtomicParser && isUnbounded(parser.children()[0])) {
+                findings.add(new Finding(Finding.Kind.ATOMIC_BACKTRACKING, name,
+                        "atomic() gives back all of " + parser.children()[0] + " when it fails",
+                        Finding.Kind.ATOMIC_BACKTRACKING.cost * weight));
+            }
+            for (Parser<?> child : parser.children()) {
+                walk(child, rule, references);
+            }
+        }
+
+        private void overlaps(Parser<?> choice, String name, int weight) {
+            Parser<?>[] alternatives = choice.children();
+            ArrayList<String> pairs = Lists.arrayList();
+            for (int i = 0; i < alternatives.length; i++) {
+                First first = first(alternatives[i]);
+                if (first.unknown) continue;
+                for (int j = i + 1; j < alternatives.length; j++) {
+                    First later = first(alternatives[j]);
+                    if (later.unknown) continue;
+                    String common = first.overlap(later);
+                    if (common != null) {
+                        pairs.add("alternatives " + (i + 1) + " and " + (j + 1) + " both start with " + common);
+                    }
+                }
+            }
+            if (pairs.isEmpty()) return;
+            StringBuilder message = new StringBuilder();
+            for (String pair : pairs) {
+                if (message.length() > 0) message.append("; ");
+                message.append(pair);
+            }
+            findings.add(new Finding(Finding.Kind.OVERLAPPING_ALTERNATIVES, name, message.toString(),
+                    Finding.Kind.OVERLAPPING_ALTERNATIVES.cost * pairs.size() * weight));
+        }
+
+        /**
+         * Returns what {@code parser} may start with, reporting the references found to run
+         * themselves before consuming input.
+         */
+        First first(Parser<?> parser) {
+            First first = firsts.get(parser);
+            if (first == IN_PROGRESS) {
+                // a cycle without consuming input, which runs through at least one reference.
+                for (int i = inProgress.size() - 1; i >= 0; i--) {
+                    Parser<?> node = inProgress.get(i);
+                    if (node instanceof LazyParser) {
+                        leftRecursion((LazyParser<?>) node);
+                        break;
+                    }
+                    if (node == parser) break;
+                }
+                return NOTHING;
+            }
+            if (first != null) return first;
+            firsts.put(parser, IN_PROGRESS);
+            inProgress.add(parser);
+            first = compute(parser);
+            inProgress.remove(inProgress.size() - 1);
+            firsts.put(parser, first);
+            return first;
+        }
+
+        private void leftRecursion(LazyParser<?> reference) {
+            if (leftRecursive.put(reference, true) != null) return;
+            Parser<?> target = reference.target();
+            String rule = isLabel(target) ? ((ExpectParser<?>) target.children()[1]).name : String.valueOf(target);
+            findings.add(new Finding(Finding.Kind.LEFT_RECURSION, rule,
+                    "the rule runs itself again before consuming any input, which only parses in packrat() mode",
+                    Finding.Kind.LEFT_RECURSION.cost));
+        }
+
+        private First compute(Parser<?> parser) {
+            First first = new First();
+            if (parser instanceof LazyParser) {
+                Parser<?> target = ((LazyParser<?>) parser).target();
+                if (target == null) first.unknown = first.emptyUnknown = true;
+                else first.addAll(first(target)).emptyAs(first(target));
+            } else if (parser instanceof IsCharScanner) {
+                predicate(((IsCharScanner) parser).predicate, first);
+            } else if (parser instanceof PatternScanner) {
+                pattern(((PatternScanner) parser).pattern, first);
+            } else if (parser instanceof PatternSequenceScanner) {
+                Pattern[] patterns = ((PatternSequenceScanner) parser).patterns;
+                first.empty = true;
+                int i = 0;
+                while (i < patterns.length && first.empty) {
+                    First element = new First();
+                    pattern(patterns[i++], element);
+                    first.addAll(element).emptyAs(element);
+                }
+                // the patterns after one that may or may not match empty may start it too.
+                if (first.emptyUnknown && i < patterns.length) first.unknown = true;
+            } else if (parser instanceof SkipPatternScanner) {
+                SkipPatternScanner scanner = (SkipPatternScanner) parser;
+                pattern(scanner.pattern, first);
+                if (scanner.min == 0) first.empty = true;
+            } else if (parser instanceof AnyCharScanner) {
+                first.chars.set(0, 128);
+            } else if (parser instanceof NestableBlockCommentScanner) {
+                first.addAll(first(parser.children()[0]));
+            } else if (parser instanceof IsTokenParser) {
+                TokenMap<?> fromToken = ((IsTokenParser<?>) parser).fromToken;
+                if (fromToken instanceof InternalFunctors.TokenWithSameValue) {
+                    first.tokens.add(((InternalFunctors.TokenWithSameValue) fromToken).value);
+                } else {
+                    first.unknown = true;
+                }
+            } else if (parser instanceof ExpectParser || parser instanceof FailureParser
+                    || parser instanceof NeverParser || parser instanceof UnexpectedParser) {
+                // never succeeds.
+            } else if (parser instanceof ConstantParser || parser instanceof EmptyListParser
+                    || parser instanceof CutParser || parser instanceof GetIndexParser
+                    || parser instanceof EofParser || parser instanceof ActionParser) {
+                first.empty = true;
+            } else if (isSequence(parser)) {
+                first.empty = true;
+                Parser<?>[] children = parser.children();
+                int i = 0;
+                while (i < children.length && first.empty) {
+                    First element = first(children[i++]);
+                    first.addAll(element).emptyAs(element);
+                }
+                // the elements after one that may or may not consume input may start it too.
+                if (first.emptyUnknown && i < children.length) first.unknown = true;
+            } else if (parser instanceof OrParser || parser instanceof SumParser || parser instanceof BestParser) {
+                for (Parser<?> alternative : parser.children()) {
+                    First element = first(alternative);
+                    first.addAll(element);
+                    first.empty |= element.empty;
+                    first.emptyUnknown |= element.emptyUnknown;
+                }
+                if (first.empty) first.emptyUnknown = false;
+            } else if (parser instanceof RepeatAtLeastParser || parser instanceof SkipAtLeastParser
+                    || parser instanceof RepeatTimesParser || parser instanceof SkipTimesParser) {
+                First element = first(parser.children()[0]);
+                first.addAll(element).emptyAs(element);
+                if (min(parser) == 0) first.empty = true;
+                if (first.empty) first.emptyUnknown = false;
+            } else if (parser instanceof DelimitedParser) {
+                first.addAll(first(parser.children()[1])).empty = true;
+            } else if (parser instanceof PeekParser) {
+                first.addAll(first(parser.children()[0])).empty = true;
+            } else if (parser instanceof LexerParser) {
+                // lexes no token at all if neither the delimiter nor the tokenizer matches.
+                first.addAll(first(parser.children()[1])).addAll(first(parser.children()[0])).empty = true;
+            } else if (parser instanceof NestedParser) {
+                // only the lexer reads characters, and consumes none if it lexes no token.
+                First lexer = first(parser.children()[0]);
+                first.addAll(lexer).emptyAs(lexer);
+                if (lexer.mayBeEmpty()) {
+                    First tokens = first(parser.children()[1]);
+                    first.empty = lexer.empty && tokens.empty;
+                    first.emptyUnknown = !first.empty;
+                }
+            } else if (parser instanceof IfElseParser) {
+                First cond = first(parser.children()[0]);
+                First alternative = first(parser.children()[1]);
+                first.addAll(cond).addAll(alternative);
+                // what the condition is followed by is only known once it has run.
+                if (cond.mayBeEmpty()) first.unknown = true;
+                first.empty = alternative.empty;
+                first.emptyUnknown = !first.empty;
+            } else if (startsWithFirstChild(parser)) {
+                First element = first(parser.children()[0]);
+                first.addAll(element).emptyAs(element);
+                // what runs next is not known.
+                if (parser instanceof BindNextParser && element.mayBeEmpty()) {
+                    first.unknown = true;
+                    first.empty = false;
+                    first.emptyUnknown = true;
+                }
+            } else {
+                first.unknown = true;
+                first.emptyUnknown = true;
+            }
+            return first;
+        }
+    }
+
+    private static final First IN_PROGRESS = new First();
+    private static final First NOTHING = new First();
+
+    private static void predicate(Predicate<Character> predicate, First first) {
+        for (char c = 0; c < 128; c++) {
+            if (predicate.matches(c)) first.chars.set(c);
+        }
+    }
+
+    private static void pattern(Pattern pattern, First first) {
+        for (char c = 0; c < 128; c++) {
+            if (pattern.mayStartWith(c)) first.chars.set(c);
+        }
+        first.empty = pattern.mayMatchEmpty();
+        // a pattern that does not tell what it starts with, nor whether it may match empty.
+        if (first.chars.cardinality() == 128) {
+            first.unknown = true;
+            first.emptyUnknown = first.empty;
+            first.empty = false;
+        }
+    }
+
+    private static int min(Parser<?> parser) {
+        if (parser instanceof RepeatAtLeastParser) return ((RepeatAtLeastParser<?>) parser).min;
+        if (parser instanceof SkipAtLeastParser) return ((SkipAtLeastParser) parser).min;
+        if (parser instanceof RepeatTimesParser) return ((RepeatTimesParser<?>) parser).min;
+        return ((SkipTimesParser) parser).min;
+    }
+
+    private static boolean isLabel(Parser<?> parser) {
+        return parser instanceof SumParser && parser.children().length == 2
+                && parser.children()[1] instanceof ExpectParser;
+    }
+
+    /**
+     * Whether {@code parser} repeats its only child for as long as it succeeds.
+     */
+    private static boolean isLoop(Parser<?> parser) {
+        return parser instanceof RepeatAtLeastParser || parser instanceof SkipAtLeastParser;
+    }
+
+    private static boolean isSequence(Parser<?> parser) {
+        return parser instanceof SequenceParser || parser instanceof Sequence2Parser
+                || parser instanceof Sequence3Parser || parser instanceof Sequence4Parser
+                || parser instanceof Sequence5Parser || parser instanceof ArrayParser
+                || parser instanceof ListParser;
+    }
+
+    private static boolean startsWithFirstChild(Parser<?> parser) {
+        return parser instanceof MapParser || parser instanceof ReturnSourceParser
+                || parser instanceof ToTokenParser || parser instanceof AtomicParser
+                || parser instanceof BindNextParser || parser instanceof StepParser
+                || parser instanceof MemoParser || parser instanceof PackratParser
+                || parser instanceof MaxDepthParser || parser instanceof NestedScanner
+                || parser instanceof ListeningParser || parser instanceof ListenedRuleParser
+                || parser instanceof ListenedAlternativeParser || parser instanceof ListenedTokenParser
+                || parser instanceof ProfiledParser || parser instanceof CountingParser;
+    }
+
+    /**
+     * Whether {@code parser} may consume input of any length, through a repetition or a reference.
+     */
+    private static boolean isUnbounded(Parser<?> parser) {
+        return isUnbounded(parser, new IdentityHashMap<Parser<?>, Boolean>());
+    }
+
+    private static boolean isUnbounded(Parser<?> parser, IdentityHashMap<Parser<?>, Boolean> seen) {
+        if (seen.put(parser, true) != null) return false;
+        if (parser instanceof LazyParser || isLoop(parser) || parser instanceof DelimitedParser) return true;
+        if (parser instanceof SkipPatternScanner) return true;
+        for (Parser<?> child : parser.children()) {
+            if (isUnbounded(child, seen)) return true;
+        }
+        return false;
+    }
+}
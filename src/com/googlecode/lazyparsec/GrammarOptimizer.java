@@ -0,0 +1,221 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.pattern.Pattern;
+import com.googlecode.lazyparsec.util.Lists;
+import com.googlecode.totallylazy.Callable1;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Rewrites a grammar graph into an equivalent one that does less work per character. Every rewrite
+ * keeps the results, positions, steps and errors of the original parsers:
+ * <ul>
+ * <li> nested alternatives of {@link Parsers#or(Parser[])} are flattened and {@link Parsers#never()}
+ * alternatives are dropped, unless they may {@link Parsers#cut() cut}.
+ * <li> nested sequences are flattened, constants whose result is overwritten are dropped and
+ * consecutive pattern scanners are run in one loop.
+ * <li> {@code map(f).map(g)} is run as one map.
+ * <li> {@link Parser#skipMany()} and {@link Parser#skipAtLeast(int)} of a pattern scanner are run
+ * in one loop.
+ * </ul>
+ */
+final class GrammarOptimizer extends GrammarRewriter {
+    private final boolean link;
+    private final IdentityHashMap<Parser<?>, Boolean> cuts = new IdentityHashMap<Parser<?>, Boolean>();
+
+    /**
+     * @param link whether references are resolved as by {@link Parser#link()}, or left alone so
+     *             that later changes to them are still seen.
+     */
+    GrammarOptimizer(boolean link) {
+        super(link);
+        this.link = link;
+    }
+
+    @Override
+    <T> Parser<T> rewriteReference(LazyParser<T> lazy) {
+        return link ? super.rewriteReference(lazy) : lazy;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    <T> Parser<T> rewriteNode(Parser<T> parser) {
+        if (parser instanceof OrParser) return or((OrParser<T>) parser);
+        if (parser instanceof SumParser) return plus((SumParser<T>) parser);
+        if (parser instanceof SequenceParser || returnsLast(parser)) return (Parser<T>) sequence(parser);
+        if (parser instanceof MapParser) return map((MapParser<?, T>) parser);
+        if (parser instanceof SkipAtLeastParser) return (Parser<T>) skipAtLeast((SkipAtLeastParser) parser);
+        return parser;
+    }
+
+    private static boolean returnsLast(Parser<?> parser) {
+        if (parser instanceof Sequence2Parser) return ((Sequence2Parser<?, ?, ?>) parser).returnsLast();
+        if (parser instanceof Sequence3Parser) return ((Sequence3Parser<?, ?, ?, ?>) parser).returnsLast();
+        if (parser instanceof Sequence4Parser) return ((Sequence4Parser<?, ?, ?, ?, ?>) parser).returnsLast();
+        if (parser instanceof Sequence5Parser) return ((Sequence5Parser<?, ?, ?, ?, ?, ?>) parser).returnsLast();
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Parser<T> or(OrParser<T> parser) {
+        ArrayList<Parser<? extends T>> flattened = Lists.arrayList(parser.alternatives.length);
+        for (Parser<? extends T> alternative : parser.alternatives) {
+            if (alternative instanceof OrParser && !mayCut(alternative.children())) {
+                for (Parser<? extends T> nested : ((OrParser<? extends T>) alternative).alternatives) {
+                    flattened.add(nested);
+                }
+            } else if (!(alternative instanceof NeverParser)) {
+                flattened.add(alternative);
+            }
+        }
+        // never() only goes if something else is left to fail. A single alternative is still wrapped,
+        // since or() takes back whatever a failed alternative consumed.
+        if (flattened.isEmpty()) return parser;
+        if (parser.dispatch != null && same(flattened, parser.alternatives)) return parser;
+        Parser<? extends T>[] alternatives =
+                (Parser<? extends T>[]) flattened.toArray(new Parser<?>[flattened.size()]);
+        Dispatch dispatch = Dispatch.of(alternatives);
+        if (dispatch == null && same(flattened, parser.alternatives)) return parser;
+        return new OrParser<T>(alternatives, dispatch);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Parser<T> plus(SumParser<T> parser) {
+        // a nested plus() stops and continues on exactly the same failures as the enclosing one.
+        ArrayList<Parser<? extends T>> flattened = Lists.arrayList(parser.alternatives.length);
+        for (Parser<? extends T> alternative : parser.alternatives) {
+            if (alternative instanceof SumParser && !mayCut(alternative.children())) {
+                for (Parser<? extends T> nested : ((SumParser<? extends T>) alternative).alternatives) {
+                    flattened.add(nested);
+                }
+            } else {
+                flattened.add(alternative);
+            }
+        }
+        if (parser.dispatch != null && same(flattened, parser.alternatives)) return parser;
+        Parser<? extends T>[] alternatives =
+                (Parser<? extends T>[]) flattened.toArray(new Parser<?>[flattened.size()]);
+        Dispatch dispatch = Dispatch.of(alternatives);
+        if (dispatch == null && same(flattened, parser.alternatives)) return parser;
+        return new SumParser<T>(alternatives, dispatch);
+    }
+
+    /**
+     * Whether any of {@code parsers} may {@link Parsers#cut() cut} the choice it runs in, which
+     * then must not be merged into the enclosing one. References are assumed to.
+     */
+    private boolean mayCut(Parser<?>[] parsers) {
+        for (Parser<?> parser : parsers) {
+            if (mayCut(parser)) return true;
+        }
+        return false;
+    }
+
+    private boolean mayCut(Parser<?> parser) {
+        if (parser instanceof CutParser || parser instanceof LazyParser) return true;
+        // a choice keeps the cuts of its alternatives to itself.
+        if (parser instanceof OrParser || parser instanceof SumParser || parser instanceof BestParser) {
+            return false;
+        }
+        Boolean known = cuts.get(parser);
+        if (known == null) {
+            known = mayCut(parser.children());
+            cuts.put(parser, known);
+        }
+        return known;
+    }
+
+    private static boolean same(ArrayList<?> flattened, Parser<?>[] alternatives) {
+        if (flattened.size() != alternatives.length) return false;
+        for (int i = 0; i < alternatives.length; i++) {
+            if (flattened.get(i) != alternatives[i]) return false;
+        }
+        return true;
+    }
+
+    private static Parser<?> sequence(Parser<?> sequence) {
+        Parser<?>[] parsers = sequence.children();
+        ArrayList<Parser<?>> flattened = Lists.arrayList(parsers.length);
+        for (Parser<?> parser : parsers) {
+            if (parser instanceof SequenceParser) {
+                for (Parser<?> nested : ((SequenceParser) parser).parsers) {
+                    flattened.add(nested);
+                }
+            } else {
+                flattened.add(parser);
+            }
+        }
+        ArrayList<Parser<?>> fused = Lists.arrayList(flattened.size());
+        for (int i = 0; i < flattened.size(); i++) {
+            Parser<?> parser = flattened.get(i);
+            // a constant only sets the result, which the next parser overwrites.
+            if (parser instanceof ConstantParser && i < flattened.size() - 1) continue;
+            int run = i;
+            while (run < flattened.size() && flattened.get(run) instanceof PatternScanner) run++;
+            if (run - i > 1) {
+                fused.add(patterns(flattened.subList(i, run).toArray(new Parser<?>[run - i])));
+                i = run - 1;
+            } else {
+                fused.add(parser);
+            }
+        }
+        if (fused.size() == 1) return fused.get(0);
+        if (sequence instanceof SequenceParser && fused.equals(Arrays.asList(parsers))) return sequence;
+        return new SequenceParser(fused.toArray(new Parser<?>[fused.size()]));
+    }
+
+    private static Parser<Void> patterns(Parser<?>[] scanners) {
+        String[] names = new String[scanners.length];
+        Pattern[] patterns = new Pattern[scanners.length];
+        for (int i = 0; i < scanners.length; i++) {
+            PatternScanner scanner = (PatternScanner) scanners[i];
+            names[i] = scanner.name;
+            patterns[i] = scanner.pattern;
+        }
+        return new PatternSequenceScanner(names, patterns);
+    }
+
+    private static <T> Parser<T> map(MapParser<?, T> parser) {
+        if (!(parser.parser instanceof MapParser)) return parser;
+        return fuse((MapParser<?, ?>) parser.parser, parser.m);
+    }
+
+    private static <From, Mid, To> Parser<To> fuse(
+            final MapParser<From, Mid> first, final Callable1<?, ? extends To> then) {
+        @SuppressWarnings("unchecked")
+        final Callable1<Object, ? extends To> second = (Callable1<Object, ? extends To>) then;
+        return new MapParser<From, To>(first.parser, new Callable1<From, To>() {
+            public To call(From from) throws Exception {
+                return second.call(first.m.call(from));
+            }
+
+            @Override
+            public String toString() {
+                return second.toString();
+            }
+        });
+    }
+
+    private static Parser<Void> skipAtLeast(SkipAtLeastParser parser) {
+        if (!(parser.parser instanceof PatternScanner)) return parser;
+        PatternScanner scanner = (PatternScanner) parser.parser;
+        return new SkipPatternScanner(scanner.name, scanner.pattern, parser.min);
+    }
+}
@@ -0,0 +1,97 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rewrites a grammar graph bottom up, through {@link Parser#children()} and
+ * {@link Parser#withChildren(Parser[])}.
+ * <p/>
+ * <p> A parser reachable through several paths is rewritten once and the rewritten parser is
+ * shared. The references behind {@link Parser.Reference#lazy()} are resolved at rewriting time:
+ * each one is relinked to its rewritten target through a new reference, or replaced by the
+ * rewritten target if asked to and if the reference is not part of a recursion.
+ * <p/>
+ * <p> It is <EM>not</EM> multi-thread safe.
+ */
+class GrammarRewriter {
+    private final boolean inlineReferences;
+    private final IdentityHashMap<Parser<?>, Parser<?>> rewritten = new IdentityHashMap<Parser<?>, Parser<?>>();
+
+    // the relinked references whose targets are being rewritten, mapped to whether they recurse.
+    private final IdentityHashMap<Parser<?>, Boolean> relinking = new IdentityHashMap<Parser<?>, Boolean>();
+
+    /**
+     * @param inlineReferences whether references that are not part of a recursion are replaced by
+     *                         their targets.
+     */
+    GrammarRewriter(boolean inlineReferences) {
+        this.inlineReferences = inlineReferences;
+    }
+
+    @SuppressWarnings("unchecked")
+    final <T> Parser<T> rewrite(Parser<T> parser) {
+        Parser<?> done = rewritten.get(parser);
+        if (done != null) {
+            if (relinking.containsKey(done)) relinking.put(done, true);
+            return (Parser<T>) done;
+        }
+        Parser<T> result = (parser instanceof LazyParser)
+                ? rewriteReference((LazyParser<T>) parser) : rewriteNode(rewriteChildren(parser));
+        rewritten.put(parser, result);
+        return result;
+    }
+
+    /**
+     * Rewrites {@code parser}, whose children are already rewritten. Returns {@code parser} itself
+     * if there is nothing to rewrite.
+     */
+    <T> Parser<T> rewriteNode(Parser<T> parser) {
+        return parser;
+    }
+
+    private <T> Parser<T> rewriteChildren(Parser<T> parser) {
+        Parser<?>[] children = parser.children();
+        Parser<?>[] newChildren = children;
+        for (int i = 0; i < children.length; i++) {
+            Parser<?> child = rewrite(children[i]);
+            if (child != children[i]) {
+                if (newChildren == children) newChildren = children.clone();
+                newChildren[i] = child;
+            }
+        }
+        return (newChildren == children) ? parser : parser.withChildren(newChildren);
+    }
+
+    /**
+     * Rewrites the reference behind {@code lazy}, by default relinking it to its rewritten target.
+     */
+    <T> Parser<T> rewriteReference(LazyParser<T> lazy) {
+        Parser<T> target = lazy.target();
+        // left alone to fail with the uninitialized reference error when run.
+        if (target == null) return lazy;
+        AtomicReference<Parser<T>> reference = new AtomicReference<Parser<T>>();
+        LazyParser<T> relinked = new LazyParser<T>(reference);
+        rewritten.put(lazy, relinked);
+        relinking.put(relinked, false);
+        Parser<T> rewrittenTarget = rewrite(target);
+        reference.set(rewrittenTarget);
+        boolean recursive = relinking.remove(relinked);
+        return (inlineReferences && !recursive) ? rewrittenTarget : relinked;
+    }
+}
@@ -18,9 +18,9 @@ package com.googlecode.lazyparsec;
 import com.googlecode.totallylazy.Callable1;
 
 final class IfElseParser<T, C> extends Parser<T> {
-    private final Parser<C> cond;
-    private final Callable1<? super C, ? extends Parser<? extends T>> consequence;
-    private final Parser<? extends T> alternative;
+    final Parser<C> cond;
+    final Callable1<? super C, ? extends Parser<? extends T>> consequence;
+    final Parser<? extends T> alternative;
 
     IfElseParser(Parser<C> cond,
                  Callable1<? super C, ? extends Parser<? extends T>> consequence, Parser<? extends T> alternative) {
@@ -34,12 +34,26 @@ final class IfElseParser<T, C> extends Parser<T> {
         final Object ret = context.result;
         final int step = context.step;
         final int at = context.at;
-        if (ParserInternals.runWithoutRecordingError(cond, context)) {
+        context.mark();
+        boolean ok = ParserInternals.runWithoutRecordingError(cond, context);
+        context.unmark();
+        if (ok) {
             Parser<? extends T> parser = consequence.call(cond.getReturn(context));
-            return parser.run(context);
+            return parser.apply(context);
         }
         context.set(step, at, ret);
-        return alternative.run(context);
+        return alternative.apply(context);
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{cond, alternative};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new IfElseParser<T, C>((Parser<C>) children[0], consequence, (Parser<? extends T>) children[1]);
     }
 
     @Override
@@ -0,0 +1,236 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.googlecode.lazyparsec.util.Checks.checkArgument;
+import static com.googlecode.lazyparsec.util.Checks.checkState;
+
+/**
+ * Parses a source, then parses it again after each batch of edits to it, doing only the work the
+ * edits call for. Is created by {@link Parser#incremental(Parser, Parser)}.
+ * <p/>
+ * <p> After an edit, the tokens are lexed again from the token before the edited text until the
+ * lexer gets back in step with the previous tokens, and the new tokens are spliced in. The token
+ * level parser then runs again, replaying the outcomes of the {@link Parser#memoize() memoized} rules,
+ * or of every rule when parsing in {@link Parser#packrat()} mode, that did not read the edited
+ * tokens. Each outcome records the furthest token it read, including through lookahead such as
+ * {@link Parser#peek()} or {@link Parser#not()}. The outcomes of rules after the edited tokens are
+ * moved along with them, and the {@link Token tokens} in their results report their index in the
+ * edited source. Only the rules that read a source index, through {@link Token#index()},
+ * {@link Parser#token()} or {@link Parsers#INDEX}, run again after edits that change the source
+ * length.
+ * <p/>
+ * <p> It is <EM>not</EM> multi-thread safe.
+ */
+public final class IncrementalParser<T> {
+
+    /**
+     * An edit to the source: {@code removed} characters at {@code offset} replaced by
+     * {@code inserted}.
+     */
+    public static final class Edit {
+        final int offset;
+        final int removed;
+        final String inserted;
+
+        public Edit(int offset, int removed, String inserted) {
+            checkArgument(offset >= 0 && removed >= 0, "invalid edit of %s characters at %s", removed, offset);
+            checkArgument(inserted != null, "no text inserted at %s, use \"\" to insert nothing", offset);
+            this.offset = offset;
+            this.removed = removed;
+            this.inserted = inserted;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + offset + ", " + (offset + removed) + ") -> \"" + inserted + "\"";
+        }
+    }
+
+    private final Parser<T> parser;
+    private final Parser<?> tokenizer;
+    private final Parser<?> delim;
+    private final Parser<T> from;
+
+    private String source = null;
+
+    // the tokens of source, or null if it could not be lexed.
+    private TokenBuffer tokens = null;
+    private MemoTable memo = null;
+
+    // tells the parse running when the index of a token is read.
+    private final TokenBuffer.Watch watch = new TokenBuffer.Watch();
+
+    // the number of tokens lexed by the last parse.
+    private int lexed = 0;
+
+    IncrementalParser(Parser<T> parser, Parser<?> tokenizer, Parser<Void> delim) {
+        this.parser = parser.optimized().followedBy(Parsers.EOF);
+        this.tokenizer = tokenizer;
+        this.delim = delim;
+        this.from = parser.from(tokenizer, delim);
+    }
+
+    /**
+     * Parses {@code source} from scratch.
+     */
+    public T parse(CharSequence source) {
+        this.source = source.toString();
+        this.lexed = 0;
+        this.memo = null;
+        this.tokens = lex(0, null);
+        if (tokens != null) tokens.watch(watch);
+        return parseTokens();
+    }
+
+    /**
+     * Parses the source again after {@code offset}, {@code removed} and {@code inserted} edit it.
+     */
+    public T edit(int offset, int removed, String inserted) {
+        return edit(Arrays.asList(new Edit(offset, removed, inserted)));
+    }
+
+    /**
+     * Parses the source again after {@code edits} are applied to it one after the other, the
+     * offset of each being in the source as edited by the ones before.
+     */
+    public T edit(List<Edit> edits) {
+        checkState(source != null, "Nothing parsed yet.");
+        lexed = 0;
+        for (Edit edit : edits) {
+            checkArgument(edit.offset + edit.removed <= source.length(),
+                    "edit %s out of source of %s characters", edit, source.length());
+            source = source.substring(0, edit.offset) + edit.inserted
+                    + source.substring(edit.offset + edit.removed);
+            if (tokens != null) relex(edit);
+        }
+        if (tokens == null) return parse(source);
+        return parseTokens();
+    }
+
+    /**
+     * Returns the source as edited so far.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * The number of tokens lexed by the last parse or edit.
+     */
+    int lexed() {
+        return lexed;
+    }
+
+    private void relex(Edit edit) {
+        final int shift = edit.inserted.length() - edit.removed;
+        // the token before the first one the edit may have changed, as the edit may join them.
+        int from = Math.max(tokens.firstEndingFrom(edit.offset) - 1, 0);
+        Resync resync = new Resync(tokenizer, tokens, edit.offset + edit.inserted.length(), shift);
+        TokenBuffer relexed = lex(from == 0 ? 0 : tokens.index(from), resync);
+        if (relexed == null) {
+            tokens = null;
+            memo = null;
+            return;
+        }
+        int to = resync.synced >= 0 ? resync.synced : tokens.size();
+        int moved = relexed.size() - (to - from);
+        TokenBuffer spliced = tokens.splice(from, to, relexed, shift);
+        if (memo != null) memo = memo.edit(capacity(spliced.size()), from, to, moved, shift);
+        tokens = spliced;
+    }
+
+    /**
+     * Lexes the source from {@code at} to the end, or until {@code resync} finds the previous
+     * tokens again, returning {@code null} if it cannot be lexed.
+     */
+    private TokenBuffer lex(int at, Resync resync) {
+        ScannerState state = new ScannerState(null, source, at, new DefaultSourceLocator(source));
+        LexerParser lexer = new LexerParser(resync == null ? tokenizer : resync, delim);
+        if (!lexer.run(state)) return null;
+        if (!state.isEof() && (resync == null || resync.synced < 0)) return null;
+        TokenBuffer lexedTokens = lexer.getReturn(state);
+        lexed += lexedTokens.size();
+        return lexedTokens;
+    }
+
+    private T parseTokens() {
+        // a source that cannot be lexed fails as it does with from().
+        if (tokens == null) return from.parse(source);
+        DefaultSourceLocator locator = new DefaultSourceLocator(source);
+        ParserState state = new ParserState(null, source, tokens, 0, locator, source.length(), null);
+        state.useMemo(memo == null ? new MemoTable(capacity(tokens.size())) : memo);
+        watch.context = state;
+        boolean success;
+        try {
+            success = parser.run(state);
+        } finally {
+            watch.context = null;
+        }
+        memo = state.memo();
+        if (!success) {
+            throw new ParserException(state.renderError(), null, locator.locate(state.errorIndex()));
+        }
+        return parser.getReturn(state);
+    }
+
+    private static int capacity(int tokens) {
+        return Math.max(MemoTable.DEFAULT_CAPACITY, Integer.highestOneBit(Math.min(tokens, 1 << 20)) * 4);
+    }
+
+    /**
+     * Runs the tokenizer, except at the first token of the previous source after the edited text,
+     * where the tokens from there on are bound to be the same. There it stops the lexer instead.
+     */
+    private static final class Resync extends Parser<Object> {
+        private final Parser<?> tokenizer;
+        private final TokenBuffer previous;
+        private final int editEnd;
+        private final int shift;
+
+        // the position in previous of the first token not lexed again, or -1.
+        int synced = -1;
+
+        Resync(Parser<?> tokenizer, TokenBuffer previous, int editEnd, int shift) {
+            this.tokenizer = tokenizer;
+            this.previous = previous;
+            this.editEnd = editEnd;
+            this.shift = shift;
+        }
+
+        @Override
+        boolean apply(ParseContext context) throws Exception {
+            if (context.at >= editEnd) {
+                int token = previous.find(context.at - shift);
+                if (token >= 0) {
+                    synced = token;
+                    return false;
+                }
+            }
+            return tokenizer.apply(context);
+        }
+
+        @Override
+        public String toString() {
+            return tokenizer.toString();
+        }
+    }
+}
@@ -29,10 +29,11 @@ import com.googlecode.totallylazy.Callable5;
 final class InternalFunctors {
 
     static <T> TokenMap<T> isTokenType(final Class<T> targetType, final String name) {
-        return new TokenMap<T>() {
-            public T map(Token token) {
-                if (targetType.isInstance(token.value())) {
-                    return targetType.cast(token.value());
+        return new TokenValueMap<T>() {
+            @Override
+            T mapValue(Object value) {
+                if (targetType.isInstance(value)) {
+                    return targetType.cast(value);
                 }
                 return null;
             }
@@ -45,16 +46,28 @@ final class InternalFunctors {
     }
 
     static TokenMap<Token> tokenWithSameValue(final Object value) {
-        return new TokenMap<Token>() {
-            public Token map(Token token) {
-                return (value == token.value()) ? token : null;
-            }
+        return new TokenWithSameValue(value);
+    }
 
-            @Override
-            public String toString() {
-                return String.valueOf(value);
-            }
-        };
+    /**
+     * Recognizes the token whose value is {@code value} itself. Named so that alternatives of these
+     * can be looked up by their value.
+     */
+    static final class TokenWithSameValue implements TokenMap<Token> {
+        final Object value;
+
+        TokenWithSameValue(Object value) {
+            this.value = value;
+        }
+
+        public Token map(Token token) {
+            return (value == token.value()) ? token : null;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -23,8 +23,8 @@ import com.googlecode.totallylazy.Predicate;
  * @author Ben Yu
  */
 final class IsCharScanner extends Parser<Void> {
-    private final String name;
-    private final Predicate<Character> predicate;
+    final String name;
+    final Predicate<Character> predicate;
 
     IsCharScanner(String name, Predicate<Character> predicate) {
         this.name = name;
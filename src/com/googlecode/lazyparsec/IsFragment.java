@@ -22,10 +22,10 @@ import com.googlecode.lazyparsec.Tokens.Fragment;
  *
  * @author Ben Yu
  */
-abstract class IsFragment implements TokenMap<String> {
+abstract class IsFragment extends TokenValueMap<String> {
 
-    public String map(final Token token) {
-        final Object val = token.value();
+    @Override
+    String mapValue(final Object val) {
         if (val instanceof Fragment) {
             Fragment c = (Fragment) val;
             if (!isExpectedTag(c.tag())) return null;
@@ -16,7 +16,7 @@
 package com.googlecode.lazyparsec;
 
 final class IsTokenParser<T> extends Parser<T> {
-    private final TokenMap<? extends T> fromToken;
+    final TokenMap<? extends T> fromToken;
 
     IsTokenParser(TokenMap<? extends T> fromToken) {
         this.fromToken = fromToken;
@@ -28,8 +28,7 @@ final class IsTokenParser<T> extends Parser<T> {
             context.expected(fromToken);
             return false;
         }
-        Token token = context.getToken();
-        Object v = fromToken.map(token);
+        Object v = map(context);
         if (v == null) {
             context.expected(fromToken);
             return false;
@@ -39,6 +38,20 @@ final class IsTokenParser<T> extends Parser<T> {
         return true;
     }
 
+    /**
+     * Maps the current token, only creating the {@link Token} when {@code fromToken} needs it.
+     */
+    private Object map(ParseContext context) {
+        if (fromToken instanceof TokenValueMap) {
+            return ((TokenValueMap<?>) fromToken).mapValue(context.getTokenValue());
+        }
+        if (fromToken instanceof InternalFunctors.TokenWithSameValue
+                && ((InternalFunctors.TokenWithSameValue) fromToken).value != context.getTokenValue()) {
+            return null;
+        }
+        return fromToken.map(context.getToken());
+    }
+
     @Override
     public String toString() {
         return fromToken.toString();
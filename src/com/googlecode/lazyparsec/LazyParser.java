@@ -26,6 +26,7 @@ import java.util.concurrent.atomic.AtomicReference;
  * @author Ben Yu
  */
 final class LazyParser<T> extends Parser<T> {
+    private final int id = MemoTable.newId();
     private final AtomicReference<Parser<T>> ref;
 
     LazyParser(AtomicReference<Parser<T>> ref) {
@@ -34,7 +35,82 @@ final class LazyParser<T> extends Parser<T> {
 
     @Override
     boolean apply(ParseContext context) throws Exception {
-        return deref().apply(context);
+        Parser<T> parser = deref().optimized();
+        if (++context.depth > context.maxDepth) {
+            throw context.abort("maximum nesting depth of " + context.maxDepth + " exceeded");
+        }
+        boolean ok = context.packrat ? applyPackrat(parser, context) : parser.apply(context);
+        context.depth--;
+        return ok;
+    }
+
+    /**
+     * Runs the referenced rule memoized, growing the seed if the rule turns out to be left recursive.
+     */
+    private boolean applyPackrat(Parser<T> parser, ParseContext context) throws Exception {
+        RuleStack rules = context.rules();
+        final int at = context.at;
+        final int step = context.step;
+        int running = rules.find(id, at);
+        if (running >= 0) {
+            // left recursion, answer with the seed grown so far.
+            rules.setLeftRecursive(running);
+            if (!rules.seedSucceeded(running)) return false;
+            context.set(step + rules.seedSteps(running), rules.seedEnd(running), rules.seedResult(running));
+            return true;
+        }
+        MemoTable memo = context.memo();
+        boolean recording = !context.isErrorSuppressed();
+        int slot = memo.lookup(id, at);
+        if (slot >= 0 && memo.replays(slot, recording)) {
+            context.mergeErrors(memo.errors(slot));
+            context.mergeReads(memo.furthest(slot));
+            context.indexed |= memo.indexed(slot);
+            context.set(step + memo.steps(slot), memo.end(slot), memo.result(slot));
+            return memo.succeeded(slot);
+        }
+        ParseContext.ErrorState detached = recording ? context.detachErrors() : null;
+        final int read = context.detachReads();
+        final boolean indexed = context.indexed;
+        context.indexed = false;
+        final Object result = context.result;
+        final boolean cut = context.cut;
+        context.cut = false;
+        int index = rules.push(id, at);
+        // a left recursive rule goes back to where it started to grow its seed.
+        context.mark();
+        boolean ok = parser.apply(context);
+        if (rules.isLeftRecursive(index)) {
+            while (ok && (!rules.seedSucceeded(index) || context.at > rules.seedEnd(index))) {
+                rules.setSeed(index, true, context.at, context.step - step, context.result);
+                context.set(step, at, result);
+                ok = parser.apply(context);
+            }
+            if (rules.seedSucceeded(index)) {
+                context.set(step + rules.seedSteps(index), rules.seedEnd(index), rules.seedResult(index));
+                ok = true;
+            }
+        }
+        context.unmark();
+        // a replayed outcome would not cut again.
+        boolean memoizable = !rules.isGrowingAt(at, index) && !context.cut;
+        context.cut |= cut;
+        rules.pop();
+        ParseContext.ErrorState raised = recording ? context.reattachErrors(detached) : null;
+        int furthest = context.reattachReads(read);
+        boolean ranIndexed = context.indexed;
+        context.indexed |= indexed;
+        if (memoizable) {
+            memo.put(id, at, ok, context.at, furthest, ranIndexed, context.step - step, context.result, raised);
+        }
+        return ok;
+    }
+
+    /**
+     * The referenced parser, or {@code null} if the reference is not set yet.
+     */
+    Parser<T> target() {
+        return ref.get();
     }
 
     private Parser<T> deref() {
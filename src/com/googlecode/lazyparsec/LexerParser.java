@@ -0,0 +1,84 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Runs a tokenizer repeatedly, ignoring the delimiter before and after each token, and collects
+ * the tokens in a {@link TokenBuffer}. Equivalent to {@code tokenizer.lexer(delim)} without
+ * creating a {@link Token} for each token.
+ */
+final class LexerParser extends Parser<TokenBuffer> {
+    private final Parser<?> tokenizer;
+    private final Parser<?> delim;
+
+    LexerParser(Parser<?> tokenizer, Parser<?> delim) {
+        this.tokenizer = tokenizer;
+        this.delim = delim;
+    }
+
+    @Override
+    boolean apply(final ParseContext context) throws Exception {
+        final TokenBuffer tokens = context.takeTokens();
+        final int step = context.step;
+        final int at = context.at;
+        if (!ParserInternals.greedyRun(delim, context) && !ParserInternals.stillThere(context, at, step)) {
+            return false;
+        }
+        int step1 = context.step;
+        int at1 = context.at;
+        int begin = context.getIndex();
+        if (!ParserInternals.greedyRun(tokenizer, context)) {
+            if (!ParserInternals.stillThere(context, at1, step1)) return false;
+            context.result = tokens;
+            return true;
+        }
+        tokens.add(begin, context.getIndex() - begin, context.result);
+        for (; ; ) {
+            final int step0 = context.step;
+            final int at0 = context.at;
+            if (!ParserInternals.greedyRun(delim, context)) {
+                if (!ParserInternals.stillThere(context, at0, step0)) return false;
+                break;
+            }
+            step1 = context.step;
+            at1 = context.at;
+            begin = context.getIndex();
+            if (!ParserInternals.greedyRun(tokenizer, context)) {
+                if (!ParserInternals.stillThere(context, at1, step1)) return false;
+                break;
+            }
+            if (at0 == context.at) break; // infinite loop
+            tokens.add(begin, context.getIndex() - begin, context.result);
+        }
+        context.result = tokens;
+        return true;
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{tokenizer, delim};
+    }
+
+    @Override
+    Parser<TokenBuffer> withChildren(Parser<?>[] children) {
+        return new LexerParser(children[0], children[1]);
+    }
+
+    @Override
+    public String toString() {
+        return tokenizer.toString();
+    }
+}
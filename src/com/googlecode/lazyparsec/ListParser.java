@@ -34,16 +34,27 @@ final class ListParser<T> extends Parser<List<T>> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         ArrayList<T> list = Lists.arrayList(parsers.length);
         for (Parser<? extends T> parser : parsers) {
-            if (!parser.run(context)) return false;
+            if (!parser.apply(context)) return false;
             list.add(parser.getReturn(context));
         }
         context.result = list;
         return true;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return parsers;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<List<T>> withChildren(Parser<?>[] children) {
+        return new ListParser<T>((Parser<? extends T>[]) children);
+    }
+
     @Override
     public String toString() {
         return "list";
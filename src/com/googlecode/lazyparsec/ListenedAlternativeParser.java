@@ -0,0 +1,57 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Tells a {@link ParseListener} when an alternative of a choice fails.
+ */
+final class ListenedAlternativeParser<T> extends Parser<T> {
+    private final Parser<T> alternative;
+    private final ParseListener listener;
+    private final String choice;
+    private final int number;
+
+    ListenedAlternativeParser(Parser<T> alternative, ParseListener listener, String choice, int number) {
+        this.alternative = alternative;
+        this.listener = listener;
+        this.choice = choice;
+        this.number = number;
+    }
+
+    @Override
+    boolean apply(ParseContext context) throws Exception {
+        int from = context.getIndex();
+        if (alternative.apply(context)) return true;
+        listener.alternativeFailed(choice, number, from, context.getIndex());
+        return false;
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{alternative};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new ListenedAlternativeParser<T>((Parser<T>) children[0], listener, choice, number);
+    }
+
+    @Override
+    public String toString() {
+        return alternative.toString();
+    }
+}
@@ -0,0 +1,55 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Tells a {@link ParseListener} when a labelled rule starts and finishes.
+ */
+final class ListenedRuleParser<T> extends Parser<T> {
+    private final Parser<T> rule;
+    private final ParseListener listener;
+    private final String name;
+
+    ListenedRuleParser(Parser<T> rule, ParseListener listener, String name) {
+        this.rule = rule;
+        this.listener = listener;
+        this.name = name;
+    }
+
+    @Override
+    boolean apply(ParseContext context) throws Exception {
+        listener.enter(name, context.getIndex());
+        boolean success = rule.apply(context);
+        listener.exit(name, context.getIndex(), success);
+        return success;
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{rule};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new ListenedRuleParser<T>((Parser<T>) children[0], listener, name);
+    }
+
+    @Override
+    public String toString() {
+        return rule.toString();
+    }
+}
@@ -0,0 +1,53 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Tells a {@link ParseListener} when a token is consumed.
+ */
+final class ListenedTokenParser<T> extends Parser<T> {
+    private final Parser<T> parser;
+    private final ParseListener listener;
+
+    ListenedTokenParser(Parser<T> parser, ParseListener listener) {
+        this.parser = parser;
+        this.listener = listener;
+    }
+
+    @Override
+    boolean apply(ParseContext context) throws Exception {
+        Token token = context.isEof() ? null : context.getToken();
+        if (!parser.apply(context)) return false;
+        listener.tokenConsumed(token);
+        return true;
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new ListenedTokenParser<T>((Parser<T>) children[0], listener);
+    }
+
+    @Override
+    public String toString() {
+        return parser.toString();
+    }
+}
@@ -18,8 +18,8 @@ package com.googlecode.lazyparsec;
 import com.googlecode.totallylazy.Callable1;
 
 final class MapParser<From, To> extends Parser<To> {
-    private final Parser<From> parser;
-    private final Callable1<? super From, ? extends To> m;
+    final Parser<From> parser;
+    final Callable1<? super From, ? extends To> m;
 
     MapParser(Parser<From> parser, Callable1<? super From, ? extends To> m) {
         this.parser = parser;
@@ -28,13 +28,24 @@ final class MapParser<From, To> extends Parser<To> {
 
     @Override
     boolean apply(final ParseContext context) throws Exception {
-        final boolean r = parser.run(context);
+        final boolean r = parser.apply(context);
         if (r) {
             context.result = m.call(parser.getReturn(context));
         }
         return r;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<To> withChildren(Parser<?>[] children) {
+        return new MapParser<From, To>((Parser<From>) children[0], m);
+    }
+
     @Override
     public String toString() {
         return m.toString();
@@ -0,0 +1,67 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Reads a file as a {@link CharSequence} through a memory mapping, decoding the characters as they
+ * are read where the charset allows.
+ */
+final class MappedFile {
+
+    /**
+     * Maps {@code file}. ASCII and ISO-8859-1 files, and UTF-8 files with no other character than
+     * ASCII, are read with {@link ByteSource}, and other UTF-8 files with {@link Utf8Source}. Files
+     * in any other charset are decoded up front.
+     */
+    static CharSequence map(File file, Charset charset) throws IOException {
+        ByteBuffer bytes = map(file);
+        String name = charset.name();
+        if (name.equals("ISO-8859-1") || name.equals("US-ASCII")) return new ByteSource(bytes);
+        if (name.equals("UTF-8")) {
+            return Utf8Source.isAscii(bytes) ? new ByteSource(bytes) : new Utf8Source(bytes);
+        }
+        return charset.decode(bytes);
+    }
+
+    /**
+     * Maps {@code file} read-only. The mapping stays valid after the file is closed, and is released
+     * once the buffer is garbage collected.
+     */
+    private static MappedByteBuffer map(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " has " + size + " bytes, more than can be indexed");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            in.close();
+        }
+    }
+
+    private MappedFile() {
+    }
+}
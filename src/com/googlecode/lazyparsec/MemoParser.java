@@ -0,0 +1,87 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Memoizes the outcome of a {@link Parser} at each position, so that running it again at the same
+ * position after backtracking is a {@link MemoTable} lookup instead of a re-parse.
+ */
+final class MemoParser<T> extends Parser<T> {
+    private final int id = MemoTable.newId();
+    private final Parser<T> parser;
+
+    MemoParser(Parser<T> parser) {
+        this.parser = parser;
+    }
+
+    @Override
+    boolean apply(ParseContext context) throws Exception {
+        return runMemoized(id, parser, context);
+    }
+
+    /**
+     * Runs {@code parser} identified by {@code id}, or replays its memoized outcome, including the
+     * errors it raised, if it already ran at the current position.
+     */
+    static boolean runMemoized(int id, Parser<?> parser, ParseContext context) throws Exception {
+        MemoTable memo = context.memo();
+        final int at = context.at;
+        final int step = context.step;
+        boolean recording = !context.isErrorSuppressed();
+        int slot = memo.lookup(id, at);
+        if (slot >= 0 && memo.replays(slot, recording)) {
+            context.mergeErrors(memo.errors(slot));
+            context.mergeReads(memo.furthest(slot));
+            context.indexed |= memo.indexed(slot);
+            context.set(step + memo.steps(slot), memo.end(slot), memo.result(slot));
+            return memo.succeeded(slot);
+        }
+        ParseContext.ErrorState detached = recording ? context.detachErrors() : null;
+        final int read = context.detachReads();
+        final boolean indexed = context.indexed;
+        context.indexed = false;
+        final boolean cut = context.cut;
+        context.cut = false;
+        boolean ok = parser.apply(context);
+        ParseContext.ErrorState raised = recording ? context.reattachErrors(detached) : null;
+        int furthest = context.reattachReads(read);
+        boolean ranIndexed = context.indexed;
+        context.indexed |= indexed;
+        // a replayed outcome would not cut again.
+        if (context.cut) return ok;
+        context.cut = cut;
+        // the outcome may depend on a left recursive seed that is yet to grow.
+        if (context.packrat && context.rules().isGrowingAt(at)) return ok;
+        memo.put(id, at, ok, context.at, furthest, ranIndexed, context.step - step, context.result, raised);
+        return ok;
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new MemoParser<T>((Parser<T>) children[0]);
+    }
+
+    @Override
+    public String toString() {
+        return parser.toString();
+    }
+}
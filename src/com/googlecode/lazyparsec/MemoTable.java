@@ -0,0 +1,185 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.googlecode.lazyparsec.util.Checks.checkArgument;
+
+/**
+ * A bounded table of memoized parser outcomes, keyed by the id of the memoized parser and the
+ * position it ran at.
+ * <p/>
+ * <p> Every key hashes to exactly one slot and a new entry evicts whatever occupied the slot
+ * before. Memory use therefore stays flat regardless of the input size, while the entries around
+ * the current position, which are the ones revisited by backtracking, tend to survive.
+ * <p/>
+ * <p> It is <EM>not</EM> multi-thread safe.
+ */
+final class MemoTable {
+
+    static final int DEFAULT_CAPACITY = 1 << 12;
+
+    private static final AtomicInteger lastId = new AtomicInteger();
+
+    /**
+     * Allocates a new id for a memoized parser. Ids are never {@code 0}, which marks an empty slot.
+     */
+    static int newId() {
+        return lastId.incrementAndGet();
+    }
+
+    private final int mask;
+    private final int[] ids;
+    private final int[] positions;
+    private final boolean[] successes;
+    private final int[] ends;
+    private final int[] furthests;
+    private final boolean[] indexed;
+    private final int[] steps;
+    private final Object[] results;
+    private final ParseContext.ErrorState[] errors;
+
+    /**
+     * @param capacity the number of slots, must be a power of 2.
+     */
+    MemoTable(int capacity) {
+        checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1,
+                "capacity %s is not a power of 2", capacity);
+        this.mask = capacity - 1;
+        this.ids = new int[capacity];
+        this.positions = new int[capacity];
+        this.successes = new boolean[capacity];
+        this.ends = new int[capacity];
+        this.furthests = new int[capacity];
+        this.indexed = new boolean[capacity];
+        this.steps = new int[capacity];
+        this.results = new Object[capacity];
+        this.errors = new ParseContext.ErrorState[capacity];
+    }
+
+    /**
+     * Returns the slot holding the outcome of parser {@code id} at {@code at}, or {@code -1} if none.
+     */
+    int lookup(int id, int at) {
+        int slot = slot(id, at);
+        return (ids[slot] == id && positions[slot] == at) ? slot : -1;
+    }
+
+    /**
+     * Records the outcome of parser {@code id} that ran at {@code at}.
+     *
+     * @param success  whether the parser succeeded.
+     * @param end      the position after the parser ran.
+     * @param furthest the furthest position the parser read, or {@code -1} if not tracked.
+     * @param indexed  whether the parser read a source index, see {@link ParseContext#indexed}.
+     * @param steps    the number of logical steps the parser took.
+     * @param result   the parser result.
+     * @param errors   the errors raised by the parser, or {@code null} if they were suppressed.
+     */
+    void put(int id, int at, boolean success, int end, int furthest, boolean indexed, int steps,
+             Object result, ParseContext.ErrorState errors) {
+        int slot = slot(id, at);
+        this.ids[slot] = id;
+        this.positions[slot] = at;
+        this.successes[slot] = success;
+        this.ends[slot] = end;
+        this.furthests[slot] = furthest;
+        this.indexed[slot] = indexed;
+        this.steps[slot] = steps;
+        this.results[slot] = result;
+        this.errors[slot] = errors;
+    }
+
+    /**
+     * Returns a table of {@code capacity} slots with the entries that still hold after the positions
+     * between {@code from} and {@code to} are replaced by {@code to - from + shift} new ones, and
+     * the source after them is moved by {@code sourceShift} characters.
+     * <p/>
+     * <p> An entry is kept if every position it read, consumed or failed at is before
+     * {@code from}. An entry that ran from {@code to} on is moved by {@code shift}, unless it read a
+     * source index that {@code sourceShift} makes stale. Entries without recorded errors are
+     * dropped, since the errors they would replay are not known.
+     */
+    MemoTable edit(int capacity, int from, int to, int shift, int sourceShift) {
+        MemoTable edited = new MemoTable(capacity);
+        for (int slot = 0; slot < ids.length; slot++) {
+            ParseContext.ErrorState state = errors[slot];
+            if (ids[slot] == 0 || state == null) continue;
+            int last = Math.max(Math.max(ends[slot] - 1, furthests[slot]), state.errorAt);
+            if (last < from) {
+                edited.put(ids[slot], positions[slot], successes[slot], ends[slot], furthests[slot],
+                        indexed[slot], steps[slot], results[slot], state);
+            } else if (positions[slot] >= to && (sourceShift == 0 || !indexed[slot])) {
+                ParseContext.ErrorState moved = new ParseContext.ErrorState(state.errorAt + shift,
+                        state.errorIndex + sourceShift, state.errorType, state.errors, state.encountered);
+                edited.put(ids[slot], positions[slot] + shift, successes[slot], ends[slot] + shift,
+                        furthests[slot] + shift, indexed[slot], steps[slot], results[slot], moved);
+            }
+        }
+        return edited;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        Arrays.fill(ids, 0);
+        Arrays.fill(results, null);
+        Arrays.fill(errors, null);
+    }
+
+    boolean succeeded(int slot) {
+        return successes[slot];
+    }
+
+    int end(int slot) {
+        return ends[slot];
+    }
+
+    /**
+     * Whether the outcome in {@code slot} can be replayed by a parser that is {@code recording}
+     * errors, which it can not if the errors it raised were suppressed when memoized.
+     */
+    boolean replays(int slot, boolean recording) {
+        return !recording || errors[slot] != null;
+    }
+
+    int furthest(int slot) {
+        return furthests[slot];
+    }
+
+    boolean indexed(int slot) {
+        return indexed[slot];
+    }
+
+    int steps(int slot) {
+        return steps[slot];
+    }
+
+    Object result(int slot) {
+        return results[slot];
+    }
+
+    ParseContext.ErrorState errors(int slot) {
+        return errors[slot];
+    }
+
+    private int slot(int id, int at) {
+        return (at ^ (id * 0x9E3779B9)) & mask;
+    }
+}
@@ -33,12 +33,12 @@ final class NestableBlockCommentScanner extends Parser<Void> {
     }
 
     @Override
-    boolean apply(final ParseContext context) {
-        if (!openQuote.run(context)) return false;
+    boolean apply(final ParseContext context) throws Exception {
+        if (!openQuote.apply(context)) return false;
         for (int level = 1; level > 0; ) {
             final int step = context.step;
             final int at = context.at;
-            if (closeQuote.run(context)) {
+            if (ParserInternals.greedyRun(closeQuote, context)) {
                 if (at == context.at) {
                     throw new IllegalStateException("closing comment scanner not consuming input.");
                 }
@@ -46,7 +46,7 @@ final class NestableBlockCommentScanner extends Parser<Void> {
                 continue;
             }
             if (!ParserInternals.stillThere(context, at, step)) return false;
-            if (openQuote.run(context)) {
+            if (ParserInternals.greedyRun(openQuote, context)) {
                 if (at == context.at) {
                     throw new IllegalStateException("opening comment scanner not consuming input.");
                 }
@@ -54,7 +54,7 @@ final class NestableBlockCommentScanner extends Parser<Void> {
                 continue;
             }
             if (!ParserInternals.stillThere(context, at, step)) return false;
-            if (commented.run(context)) {
+            if (commented.apply(context)) {
                 if (at == context.at) {
                     throw new IllegalStateException("commented scanner not consuming input.");
                 }
@@ -66,6 +66,16 @@ final class NestableBlockCommentScanner extends Parser<Void> {
         return true;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{openQuote, closeQuote, commented};
+    }
+
+    @Override
+    Parser<Void> withChildren(Parser<?>[] children) {
+        return new NestableBlockCommentScanner(children[0], children[1], children[2]);
+    }
+
     @Override
     public String toString() {
         return "nestable block comment";
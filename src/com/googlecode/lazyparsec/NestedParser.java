@@ -16,21 +16,41 @@
 package com.googlecode.lazyparsec;
 
 final class NestedParser<T> extends Parser<T> {
-    private final Parser<Token[]> lexer;
+    private final Parser<TokenBuffer> lexer;
     private final Parser<? extends T> parser;
 
-    NestedParser(Parser<Token[]> lexer, Parser<? extends T> p) {
+    NestedParser(Parser<TokenBuffer> lexer, Parser<? extends T> p) {
         this.lexer = lexer;
         this.parser = p;
     }
 
     @Override
-    boolean apply(ParseContext context) {
-        if (!lexer.run(context)) return false;
-        Token[] tokens = lexer.getReturn(context);
+    boolean apply(ParseContext context) throws Exception {
+        // the tokens are located in, and their source read from, the characters lexed.
+        context.mark();
+        if (!lexer.apply(context)) {
+            context.unmark();
+            return false;
+        }
+        TokenBuffer tokens = lexer.getReturn(context);
         ParserState parserState = new ParserState(
-                context.module, context.source, tokens, 0, context.locator, context.getIndex(), tokens);
-        return ParserInternals.runNestedParser(context, parserState, parser);
+                context.module, context.source, tokens, 0, context.locator, context.getIndex(), null);
+        parserState.inheritModes(context);
+        boolean success = ParserInternals.runNestedParser(context, parserState, parser);
+        context.unmark();
+        if (lexer instanceof LexerParser) context.releaseTokens(tokens);
+        return success;
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{lexer, parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new NestedParser<T>((Parser<TokenBuffer>) children[0], (Parser<? extends T>) children[1]);
     }
 
     @Override
@@ -30,14 +30,29 @@ final class NestedScanner extends Parser<Void> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         int from = context.at;
-        if (!outer.run(context)) return false;
+        context.mark();
+        boolean ok = outer.apply(context);
+        context.unmark();
+        if (!ok) return false;
         ScannerState scannerState = new ScannerState(
                 context.module, context.characters(), from, context.at, context.locator, context.result);
+        scannerState.inheritModes(context);
         return ParserInternals.runNestedParser(context, scannerState, inner);
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{outer, inner};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<Void> withChildren(Parser<?>[] children) {
+        return new NestedScanner(children[0], (Parser<Void>) children[1]);
+    }
+
     @Override
     public String toString() {
         return "nested scanner";
@@ -16,28 +16,64 @@
 package com.googlecode.lazyparsec;
 
 final class OrParser<T> extends Parser<T> {
-    private final Parser<? extends T>[] alternatives;
+    final Parser<? extends T>[] alternatives;
+    final Dispatch dispatch;
+    private final int[] all;
 
     OrParser(Parser<? extends T>... alternatives) {
+        this(alternatives, null);
+    }
+
+    OrParser(Parser<? extends T>[] alternatives, Dispatch dispatch) {
         this.alternatives = alternatives;
+        this.dispatch = dispatch;
+        this.all = Dispatch.inOrder(alternatives.length);
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         final Object result = context.result;
         final int at = context.at;
         final int step = context.step;
-        for (Parser<? extends T> p : alternatives) {
-            if (p.run(context)) {
+        final boolean cut = context.cut;
+        final int choice = context.choice;
+        context.cut = false;
+        context.choice = context.mark();
+        for (int i : dispatch == null ? all : dispatch.order(context)) {
+            if (i < 0) {
+                dispatch.skip(context, i);
+                continue;
+            }
+            if (alternatives[i].apply(context)) {
+                context.cut = cut;
+                context.choice = choice;
+                context.unmark();
                 return true;
             }
+            if (context.cut) break;
+            if (context.monitor != null) context.monitor.rewinding(context, at);
             context.set(step, at, result);
         }
+        context.cut = cut;
+        context.choice = choice;
+        context.unmark();
         // set the index to the most relevant error so far.
         context.setAt(step, at);
         return false;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return alternatives;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        Parser<? extends T>[] alternatives = (Parser<? extends T>[]) children;
+        return new OrParser<T>(alternatives, dispatch == null ? null : Dispatch.of(alternatives));
+    }
+
     @Override
     public String toString() {
         return "or";
@@ -0,0 +1,52 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Runs a {@link Parser} with every {@link Parser.Reference} rule memoized.
+ */
+final class PackratParser<T> extends Parser<T> {
+    private final Parser<T> parser;
+
+    PackratParser(Parser<T> parser) {
+        this.parser = parser;
+    }
+
+    @Override
+    boolean apply(ParseContext context) throws Exception {
+        boolean packrat = context.packrat;
+        context.packrat = true;
+        boolean ok = parser.apply(context);
+        context.packrat = packrat;
+        return ok;
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new PackratParser<T>((Parser<T>) children[0]);
+    }
+
+    @Override
+    public String toString() {
+        return parser.toString();
+    }
+}
@@ -18,9 +18,11 @@ package com.googlecode.lazyparsec;
 import com.googlecode.lazyparsec.annotations.Private;
 import com.googlecode.lazyparsec.error.ParseErrorDetails;
 import com.googlecode.lazyparsec.error.ParserException;
+import com.googlecode.lazyparsec.pattern.Pattern;
 import com.googlecode.lazyparsec.util.Lists;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -32,9 +34,11 @@ abstract class ParseContext {
 
     static final String EOF = "EOF";
 
-    final String module;
-    final CharSequence source;
-    final SourceLocator locator;
+    private static final Object[] NO_ERRORS = {};
+
+    String module;
+    CharSequence source;
+    SourceLocator locator;
 
     /**
      * The current position of the input. Points to the token array for token level.
@@ -51,6 +55,72 @@ abstract class ParseContext {
      */
     Object result;
 
+    /**
+     * Whether the rules referenced through {@link Parser.Reference#lazy()} are memoized.
+     * Is turned on by {@link Parser#packrat()}.
+     */
+    boolean packrat = false;
+
+    /**
+     * Whether errors are recorded at all. Is turned off by {@link Parser#parseOrNull(CharSequence)}
+     * and {@link Parser#matches(CharSequence)}, which never report a failure.
+     */
+    boolean diagnostics = true;
+
+    /**
+     * How many rules referenced through {@link Parser.Reference#lazy()} are running nested in one
+     * another, and how many may. The limit is set by {@link Parser#maxDepth(int)}.
+     */
+    int depth = 0;
+    int maxDepth = Integer.MAX_VALUE;
+
+    /**
+     * Set by {@link Parsers#cut()} to stop the innermost enclosing {@link Parsers#or or()},
+     * {@link Parsers#plus plus()} or {@link Parsers#longest longest()} from trying further
+     * alternatives.
+     */
+    boolean cut = false;
+
+    /**
+     * The index in the marks of the innermost choice, which {@link Parsers#cut()} gives up, or
+     * {@code -1}.
+     */
+    int choice = -1;
+
+    // the positions that parsing may still go back to or read from, innermost last, see mark().
+    private int[] marks = new int[16];
+    private int markCount = 0;
+
+    /**
+     * The furthest position read, which a {@link MemoTable} entry records so that an edit of the
+     * input can tell whether the memoized outcome depends on it. Is tracked at token level, by
+     * {@link ParserState}.
+     */
+    int furthest = -1;
+
+    /**
+     * Whether a source index has been read for a result, from {@link Parsers#INDEX},
+     * {@link Parser#token()} or a {@link Token} of an {@link IncrementalParser}, which a
+     * {@link MemoTable} entry records so that an edit changing the source length can tell whether
+     * the memoized result can be moved.
+     */
+    boolean indexed = false;
+
+    /**
+     * The {@link ParseMonitor} told about backtracking, or {@code null}.
+     */
+    ParseMonitor monitor = null;
+
+    /**
+     * The {@link ParseListener} told about recorded errors, or {@code null}. Is set by
+     * {@link Parsers#listen(Parser, ParseListener)}.
+     */
+    ParseListener listener = null;
+
+    private MemoTable memo = null;
+    private RuleStack rules = null;
+    private TokenBuffer tokens = null;
+
     enum ErrorType {
 
         /**
@@ -93,12 +163,35 @@ abstract class ParseContext {
     private ErrorType currentErrorType = ErrorType.NONE;
     private int currentErrorAt;
     private int currentErrorIndex = 0; // TODO: is it necessary to set this to the starting index?
-    private final ArrayList<Object> errors = Lists.arrayList();
+    // the errors at currentErrorAt, kept in a reusable buffer until they are rendered. They are the
+    // labels as raised, not interned to a compact expected set; only renderError() makes strings.
+    private Object[] errors = new Object[8];
+    private int errorCount = 0;
     private String encountered = null; // for explicitly setting encountered token into ScannerState.
 
     // explicit suppresses error recording if true.
     private boolean errorSuppressed = false;
 
+    /**
+     * The error state detached from a {@link ParseContext}, kept so that the errors raised by a
+     * memoized parser can be replayed when its memoized outcome is reused.
+     */
+    static final class ErrorState {
+        final int errorAt;
+        final int errorIndex;
+        final ErrorType errorType;
+        final Object[] errors;
+        final String encountered;
+
+        ErrorState(int errorAt, int errorIndex, ErrorType errorType, Object[] errors, String encountered) {
+            this.errorAt = errorAt;
+            this.errorIndex = errorIndex;
+            this.errorType = errorType;
+            this.errors = errors;
+            this.encountered = encountered;
+        }
+    }
+
     /**
      * Explicitly suppress or de-suppress error recording.
      */
@@ -108,6 +201,57 @@ abstract class ParseContext {
         return oldValue;
     }
 
+    /**
+     * Whether error recording is currently suppressed.
+     */
+    final boolean isErrorSuppressed() {
+        return errorSuppressed;
+    }
+
+    /**
+     * The memo table for this parse, created upon first use.
+     */
+    final MemoTable memo() {
+        if (memo == null) memo = new MemoTable(MemoTable.DEFAULT_CAPACITY);
+        return memo;
+    }
+
+    /**
+     * Makes this parse use {@code table} as its memo table, such as one kept from a previous parse.
+     */
+    final void useMemo(MemoTable table) {
+        memo = table;
+    }
+
+    /**
+     * Takes the {@link TokenBuffer} given back by {@link #releaseTokens(TokenBuffer)}, emptied, or a
+     * new one if there is none. A token buffer taken is not given to anyone else before it is
+     * released, so that nested lexers each have their own.
+     */
+    final TokenBuffer takeTokens() {
+        TokenBuffer taken = tokens;
+        if (taken == null) return new TokenBuffer(16);
+        tokens = null;
+        taken.clear();
+        return taken;
+    }
+
+    /**
+     * Gives back {@code buffer} once the tokens in it are parsed, for the next lexer of this
+     * parse, or of the next parse in a {@link ParseSession}, to take.
+     */
+    final void releaseTokens(TokenBuffer buffer) {
+        tokens = buffer;
+    }
+
+    /**
+     * The rules running in packrat mode, created upon first use.
+     */
+    final RuleStack rules() {
+        if (rules == null) rules = new RuleStack();
+        return rules;
+    }
+
     /**
      * The physical index of the current most relevant error, {@code 0} if none.
      */
@@ -126,7 +270,50 @@ abstract class ParseContext {
      * The current most relevant error. {@code null} if none.
      */
     final List<Object> errors() {
-        return errors;
+        return Arrays.asList(errorArray());
+    }
+
+    private Object[] errorArray() {
+        if (errorCount == 0) return NO_ERRORS;
+        Object[] array = new Object[errorCount];
+        System.arraycopy(errors, 0, array, 0, errorCount);
+        return array;
+    }
+
+    private void addError(Object error) {
+        if (errorCount == errors.length) {
+            Object[] newErrors = new Object[errorCount * 2];
+            System.arraycopy(errors, 0, newErrors, 0, errorCount);
+            errors = newErrors;
+        }
+        errors[errorCount++] = error;
+    }
+
+    private void addErrors(Object[] array) {
+        for (Object error : array) {
+            addError(error);
+        }
+    }
+
+    /**
+     * Carries the modes of {@code outer} over to this context, which runs a nested parser for it.
+     */
+    final void inheritModes(ParseContext outer) {
+        this.packrat = outer.packrat;
+        this.diagnostics = outer.diagnostics;
+        this.errorSuppressed = !outer.diagnostics;
+        this.depth = outer.depth;
+        this.maxDepth = outer.maxDepth;
+        this.monitor = outer.monitor;
+        this.listener = outer.listener;
+    }
+
+    /**
+     * Turns off error recording for good, since no failure is going to be reported.
+     */
+    final void disableDiagnostics() {
+        this.diagnostics = false;
+        this.errorSuppressed = true;
     }
 
     /**
@@ -135,9 +322,9 @@ abstract class ParseContext {
     final ParseErrorDetails renderError() {
         final int errorIndex = toIndex(currentErrorAt);
         final String encounteredName = getEncountered();
-        final ArrayList<String> errorStrings = Lists.arrayList(errors.size());
-        for (Object error : errors) {
-            errorStrings.add(String.valueOf(error));
+        final ArrayList<String> errorStrings = Lists.arrayList(errorCount);
+        for (int i = 0; i < errorCount; i++) {
+            errorStrings.add(String.valueOf(errors[i]));
         }
         switch (currentErrorType) {
             case UNEXPECTED:
@@ -166,6 +353,21 @@ abstract class ParseContext {
         return new EmptyParseError(errorIndex, encounteredName);
     }
 
+    /**
+     * Returns the exception that stops parsing altogether with {@code message} at the current
+     * position, without trying any alternative.
+     */
+    final ParserException abort(final String message) {
+        final int index = getIndex();
+        ParseErrorDetails details = new EmptyParseError(index, getInputName(at)) {
+            @Override
+            public String getFailureMessage() {
+                return message;
+            }
+        };
+        return new ParserException(details, module, locator.locate(index));
+    }
+
     final String getEncountered() {
         if (encountered != null) {
             return encountered;
@@ -200,6 +402,12 @@ abstract class ParseContext {
      */
     abstract Token getToken();
 
+    /**
+     * Returns the value of the current token without creating the {@link Token}. Only applicable
+     * to token level parser.
+     */
+    abstract Object getTokenValue();
+
     /**
      * Peeks the current character. Only applicable to character level parser.
      */
@@ -213,10 +421,11 @@ abstract class ParseContext {
     @Private
     final void raise(ErrorType type, Object subject) {
         if (errorSuppressed) return;
+        if (listener != null) listener.raised(type, subject, getIndex());
         if (at < currentErrorAt) return;
         if (at > currentErrorAt) {
             setErrorState(at, getIndex(), type);
-            errors.add(subject);
+            addError(subject);
             return;
         }
         // now error location is same
@@ -225,13 +434,13 @@ abstract class ParseContext {
         }
         if (type.ordinal() > currentErrorType.ordinal()) {
             setErrorState(at, getIndex(), type);
-            errors.add(subject);
+            addError(subject);
             return;
         }
         // now even error type is same
         if (type.mergeable) {
             // merge expected error.
-            errors.add(subject);
+            addError(subject);
         }
     }
 
@@ -260,7 +469,138 @@ abstract class ParseContext {
     final void setErrorState(
             int errorAt, int errorIndex, ErrorType errorType, List<Object> errors) {
         setErrorState(errorAt, errorIndex, errorType);
-        this.errors.addAll(errors);
+        for (Object error : errors) {
+            addError(error);
+        }
+    }
+
+    /**
+     * Detaches the current error state and starts a clean one at the current position, so that
+     * the errors raised from now on can be captured by {@link #reattachErrors(ErrorState)}.
+     */
+    final ErrorState detachErrors() {
+        ErrorState detached = new ErrorState(
+                currentErrorAt, currentErrorIndex, currentErrorType, errorArray(), encountered);
+        setErrorState(at, getIndex(), ErrorType.NONE);
+        return detached;
+    }
+
+    /**
+     * Captures the errors raised since {@link #detachErrors()} returned {@code detached}, restores
+     * {@code detached} and then merges the captured errors back as if they had been raised against it.
+     *
+     * @return the captured errors.
+     */
+    final ErrorState reattachErrors(ErrorState detached) {
+        ErrorState captured = new ErrorState(
+                currentErrorAt, currentErrorIndex, currentErrorType, errorArray(), encountered);
+        setErrorState(detached.errorAt, detached.errorIndex, detached.errorType);
+        addErrors(detached.errors);
+        encountered = detached.encountered;
+        mergeErrors(captured);
+        return captured;
+    }
+
+    /**
+     * Holds the current position as one that parsing may go back to, or read from again, until
+     * {@link #unmark()}. Marks are held and released innermost first.
+     *
+     * @return the index of the mark.
+     */
+    final int mark() {
+        if (markCount == marks.length) {
+            int[] grown = new int[markCount * 2];
+            System.arraycopy(marks, 0, grown, 0, markCount);
+            marks = grown;
+        }
+        marks[markCount] = at;
+        return markCount++;
+    }
+
+    /**
+     * Moves {@code mark}, the innermost one, to the current position, as a loop does at each round.
+     */
+    final void remark(int mark) {
+        marks[mark] = at;
+    }
+
+    /**
+     * Gives up {@code mark}, which no longer holds its position but is still to be
+     * {@link #unmark() released}.
+     */
+    final void giveUp(int mark) {
+        marks[mark] = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Releases the innermost mark.
+     */
+    final void unmark() {
+        markCount--;
+    }
+
+    /**
+     * The oldest position that parsing may still go back to or read from: the oldest mark held, or
+     * the current position if it is older.
+     */
+    final int backtrackPoint() {
+        int point = at;
+        for (int i = 0; i < markCount; i++) {
+            if (marks[i] < point) point = marks[i];
+        }
+        return point;
+    }
+
+    /**
+     * Starts tracking the {@link #furthest} position read afresh, so that the positions read from
+     * now on can be captured by {@link #reattachReads(int)}.
+     *
+     * @return the furthest position read so far.
+     */
+    final int detachReads() {
+        int detached = furthest;
+        furthest = -1;
+        return detached;
+    }
+
+    /**
+     * Captures the furthest position read since {@link #detachReads()} returned {@code detached},
+     * and goes on tracking from the further of the two.
+     *
+     * @return the captured position.
+     */
+    final int reattachReads(int detached) {
+        int captured = furthest;
+        mergeReads(detached);
+        return captured;
+    }
+
+    /**
+     * Records that the positions up to {@code read} have been read, such as by a replayed outcome.
+     */
+    final void mergeReads(int read) {
+        if (read > furthest) furthest = read;
+    }
+
+    /**
+     * Merges {@code state} into the current error state, following the same precedence as
+     * {@link #raise(ErrorType, Object)}: the furthest error wins, then the most relevant error type,
+     * and mergeable errors at the same place are combined.
+     */
+    final void mergeErrors(ErrorState state) {
+        if (errorSuppressed || state == null) return;
+        if (state.errorType == ErrorType.NONE) return;
+        if (state.errorAt < currentErrorAt) return;
+        if (state.errorAt == currentErrorAt) {
+            if (state.errorType.ordinal() < currentErrorType.ordinal()) return;
+            if (state.errorType == currentErrorType) {
+                if (state.errorType.mergeable) addErrors(state.errors);
+                return;
+            }
+        }
+        setErrorState(state.errorAt, state.errorIndex, state.errorType);
+        addErrors(state.errors);
+        encountered = state.encountered;
     }
 
     private void setErrorState(int errorAt, int errorIndex, ErrorType errorType) {
@@ -268,7 +608,7 @@ abstract class ParseContext {
         this.currentErrorAt = errorAt;
         this.currentErrorType = errorType;
         this.encountered = null;
-        this.errors.clear();
+        this.errorCount = 0;
     }
 
     final void setAt(int step, int at) {
@@ -302,8 +642,51 @@ abstract class ParseContext {
         this.currentErrorAt = at;
     }
 
+    /**
+     * Resets this context to parse {@code source} from {@code at}, as if it were freshly created,
+     * reusing the error buffer and the memo table of the previous parse.
+     */
+    final void reset(String module, CharSequence source, SourceLocator locator, int at, Object ret) {
+        this.source = source;
+        this.result = ret;
+        this.step = 0;
+        this.at = at;
+        this.module = module;
+        this.locator = locator;
+        this.packrat = false;
+        this.currentErrorType = ErrorType.NONE;
+        this.currentErrorAt = at;
+        this.currentErrorIndex = 0;
+        this.errorCount = 0;
+        this.encountered = null;
+        this.diagnostics = true;
+        this.errorSuppressed = false;
+        this.depth = 0;
+        this.maxDepth = Integer.MAX_VALUE;
+        this.cut = false;
+        this.choice = -1;
+        this.markCount = 0;
+        this.furthest = -1;
+        this.indexed = false;
+        this.monitor = null;
+        this.listener = null;
+        if (memo != null) memo.clear();
+        if (rules != null) rules.clear();
+    }
+
     /**
      * Reads the characters as input. Only applicable to character level parsers.
      */
     abstract CharSequence characters();
+
+    /**
+     * Matches {@code pattern} against the characters from the current position. Only applicable to
+     * character level parsers.
+     *
+     * @return the number of characters matched, or {@link Pattern#MISMATCH}.
+     */
+    int match(Pattern pattern) {
+        CharSequence src = characters();
+        return pattern.match(src, at, src.length());
+    }
 }
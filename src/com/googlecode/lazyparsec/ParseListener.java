@@ -0,0 +1,108 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Is told what a parser does as it parses, for tracing, grammar coverage or finding the inputs
+ * that make a grammar slow. Each method does nothing by default.
+ * <p/>
+ * <p> A listener is attached with {@link Parsers#listen(Parser, ParseListener)}, which returns an
+ * instrumented copy of the grammar. The grammar itself is left alone, so parsing without a
+ * listener costs nothing extra.
+ * <p/>
+ * <p> Positions are indexes in the source, for token level parsers as well.
+ */
+public abstract class ParseListener {
+
+    /**
+     * Called when a rule named by {@link Parser#label(String)} starts at {@code index}.
+     */
+    public void enter(String rule, int index) {
+    }
+
+    /**
+     * Called when a rule named by {@link Parser#label(String)} finishes at {@code index}.
+     */
+    public void exit(String rule, int index, boolean success) {
+    }
+
+    /**
+     * Called when the alternative numbered {@code alternative}, starting from 0, of an
+     * {@link Parsers#or(Parser[]) or}, {@link Parsers#plus(Parser[]) plus},
+     * {@link Parsers#longest(Parser[]) longest} or {@link Parsers#shortest(Parser[]) shortest}
+     * choice fails at {@code index}. If another alternative is tried, parsing goes back to
+     * {@code from} first. Alternatives ruled out by looking at the next character or token are not
+     * tried, and not reported.
+     *
+     * @param choice the name of the choice.
+     */
+    public void alternativeFailed(String choice, int alternative, int from, int index) {
+    }
+
+    /**
+     * Called when {@code token} is consumed by a token level parser such as
+     * {@link Terminals#token(String...)}.
+     */
+    public void tokenConsumed(Token token) {
+    }
+
+    /**
+     * Called when an error is recorded at {@code index}, whether or not it ends up being reported.
+     *
+     * @param kind    one of {@code "expected"}, {@code "unexpected"}, {@code "failure"} and
+     *                {@code "trap"}, the last for {@link Parsers#never()}.
+     * @param subject what is expected or unexpected, or the failure message.
+     */
+    public void errorRaised(String kind, Object subject, int index) {
+    }
+
+    final void raised(ParseContext.ErrorType type, Object subject, int index) {
+        errorRaised(type == ParseContext.ErrorType.EXPECT ? "expected" : type.name().toLowerCase(), subject, index);
+    }
+
+    /**
+     * Returns a copy of {@code parser}, linked as by {@link Parser#link()}, that tells
+     * {@code this} what it does.
+     */
+    final <T> Parser<T> instrument(Parser<T> parser) {
+        Parser<T> instrumented = new GrammarRewriter(false) {
+            @Override
+            @SuppressWarnings("unchecked")
+            <R> Parser<R> rewriteNode(Parser<R> node) {
+                if (isLabel(node)) {
+                    return new ListenedRuleParser<R>(node, ParseListener.this, ((ExpectParser<?>) node.children()[1]).name);
+                }
+                if (node instanceof OrParser || node instanceof SumParser || node instanceof BestParser) {
+                    Parser<?>[] alternatives = node.children();
+                    Parser<?>[] listened = new Parser<?>[alternatives.length];
+                    for (int i = 0; i < alternatives.length; i++) {
+                        listened[i] = new ListenedAlternativeParser<Object>(
+                                (Parser<Object>) alternatives[i], ParseListener.this, node.toString(), i);
+                    }
+                    return node.withChildren(listened);
+                }
+                if (node instanceof IsTokenParser) return new ListenedTokenParser<R>(node, ParseListener.this);
+                return node;
+            }
+        }.rewrite(parser.link());
+        return new ListeningParser<T>(instrumented, this);
+    }
+
+    private static boolean isLabel(Parser<?> parser) {
+        return parser instanceof SumParser && parser.children().length == 2
+                && parser.children()[1] instanceof ExpectParser;
+    }
+}
@@ -0,0 +1,139 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+
+import static com.googlecode.lazyparsec.util.Checks.checkArgument;
+
+/**
+ * Receives the parses run by this library in the whole process, so that they can be forwarded to
+ * a flight recorder, a metrics registry or a log. Each method does nothing by default.
+ * <p/>
+ * <p> A monitor is enabled by {@link #install(ParseMonitor)}. When none is installed, a parse
+ * costs one extra field read, and nothing is measured.
+ * <p/>
+ * <p> Since parses may run in any thread, a monitor must be multi-thread safe. A monitor should
+ * not throw: what it throws is thrown by the parse it is called for.
+ */
+public abstract class ParseMonitor {
+
+    private static volatile ParseMonitor installed = null;
+
+    private final int backtrackThreshold;
+
+    /**
+     * @param backtrackThreshold the number of characters an alternative must have consumed when
+     *                           it fails for {@link #backtracked(String, int, int)} to be called.
+     */
+    protected ParseMonitor(int backtrackThreshold) {
+        checkArgument(backtrackThreshold > 0, "backtrackThreshold <= 0");
+        this.backtrackThreshold = backtrackThreshold;
+    }
+
+    /**
+     * Makes {@code monitor} receive all parses started from now on, in place of the monitor
+     * installed before, if any. {@code null} turns monitoring off.
+     */
+    public static void install(ParseMonitor monitor) {
+        installed = monitor;
+    }
+
+    /**
+     * Returns the installed monitor, or {@code null} if none.
+     */
+    public static ParseMonitor installed() {
+        return installed;
+    }
+
+    /**
+     * Called when a top level parse of {@code length} characters of {@code module} finishes.
+     *
+     * @param module  the module name, or {@code null}.
+     * @param length  the length of the source.
+     * @param nanos   the time the parse took, as measured by {@link System#nanoTime()}.
+     * @param success whether a result was returned.
+     */
+    protected void parsed(String module, int length, long nanos, boolean success) {
+    }
+
+    /**
+     * Called when a top level parse is about to throw {@code exception}, before
+     * {@link #parsed(String, int, long, boolean)} is called for the parse.
+     */
+    protected void failed(ParserException exception) {
+    }
+
+    /**
+     * Called when an alternative of {@link Parsers#or(Parser[])}, {@link Parsers#plus(Parser[])} or
+     * {@link Parsers#longest(Parser[])} fails after consuming at least the threshold number of
+     * characters, and parsing goes back from {@code from} to {@code to} to try the next one.
+     *
+     * @param module the module name, or {@code null}.
+     * @param from   the index in the source where the alternative failed.
+     * @param to     the index in the source where the alternative started.
+     */
+    protected void backtracked(String module, int from, int to) {
+    }
+
+    /**
+     * Runs {@code parser} as a top level parse in {@code context}.
+     */
+    static <T> T parse(ScannerState context, Parser<T> parser) {
+        ParseMonitor monitor = installed;
+        if (monitor == null) return Parsers.parse(context, parser);
+        context.monitor = monitor;
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = Parsers.parse(context, parser);
+            success = true;
+            return result;
+        } catch (ParserException e) {
+            monitor.failed(e);
+            throw e;
+        } finally {
+            monitor.parsed(context.module, context.source.length(), System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * Runs {@code parser} as a top level parse in {@code context}, without recording any error.
+     */
+    static boolean matches(ScannerState context, Parser<?> parser) {
+        ParseMonitor monitor = installed;
+        if (monitor == null) return Parsers.matches(context, parser);
+        context.monitor = monitor;
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            success = Parsers.matches(context, parser);
+            return success;
+        } finally {
+            monitor.parsed(context.module, context.source.length(), System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * Called before {@code context} goes back to {@code at} after a failed alternative.
+     */
+    final void rewinding(ParseContext context, int at) {
+        if (context.at - at <= 0) return;
+        int from = context.getIndex();
+        int to = context.toIndex(at);
+        if (from - to >= backtrackThreshold) backtracked(context.module, from, to);
+    }
+}
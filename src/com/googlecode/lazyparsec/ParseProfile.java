@@ -0,0 +1,235 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.util.Lists;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Collects, for every node of a grammar, how often it ran, how it fared and where the time went.
+ * A grammar is profiled by parsing with the parser returned by {@link #instrument(Parser)}:
+ * <p/>
+ * <pre>
+ * ParseProfile profile = new ParseProfile();
+ * Parser&lt;Expr&gt; profiled = profile.instrument(expression);
+ * profiled.parse(source);
+ * System.out.println(profile);
+ * </pre>
+ * <p/>
+ * <p> Each node is reported under its {@link Parser#toString()} name, as given by
+ * {@link Parser#label(String)} or the combinator. Positions are counted in characters of the
+ * source, for token level parsers as well. Time spent in a recursive rule is counted again in
+ * the inclusive time of each enclosing call of the same rule.
+ * <p/>
+ * <p> It is <EM>not</EM> multi-thread safe.
+ */
+public final class ParseProfile {
+
+    /**
+     * Orders entries by descending exclusive time.
+     */
+    public static final Comparator<Entry> BY_EXCLUSIVE_TIME = new Comparator<Entry>() {
+        public int compare(Entry a, Entry b) {
+            if (a.exclusiveNanos != b.exclusiveNanos) return a.exclusiveNanos > b.exclusiveNanos ? -1 : 1;
+            return a.id - b.id;
+        }
+    };
+
+    private final ArrayList<Entry> entries = Lists.arrayList();
+
+    // the time spent in the children of each running node, innermost last.
+    private long[] childNanos = new long[64];
+    private int depth = 0;
+
+    // the furthest position any node has consumed to in the current parse.
+    private int scanned = 0;
+
+    /**
+     * The statistics of one node of the grammar.
+     */
+    public static final class Entry {
+        private final int id;
+        private final String name;
+        long calls;
+        long successes;
+        long failures;
+        long consumed;
+        long rescanned;
+        long inclusiveNanos;
+        long exclusiveNanos;
+
+        Entry(int id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        /**
+         * The number of the node, in the order nodes were instrumented, which is the same for the
+         * same grammar.
+         */
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public long getSuccesses() {
+            return successes;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * The number of characters consumed by successful runs.
+         */
+        public long getConsumed() {
+            return consumed;
+        }
+
+        /**
+         * The number of consumed characters that had been consumed before in the same parse, and
+         * are scanned again because of backtracking.
+         */
+        public long getRescanned() {
+            return rescanned;
+        }
+
+        /**
+         * The time spent in this node, including the nodes it ran.
+         */
+        public long getInclusiveNanos() {
+            return inclusiveNanos;
+        }
+
+        /**
+         * The time spent in this node itself.
+         */
+        public long getExclusiveNanos() {
+            return exclusiveNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%10d %10d %10d %10d %10d %12d %12d  #%d %s", calls, successes, failures,
+                    consumed, rescanned, inclusiveNanos / 1000, exclusiveNanos / 1000, id, name);
+        }
+    }
+
+    /**
+     * Returns a {@link Parser} equivalent to {@code parser} that records its runs in {@code this}.
+     * The grammar is linked and optimized as by {@link Parser#link()} first, so that what is
+     * measured is what {@link Parser#parse(CharSequence)} runs; later changes to references are
+     * not seen by the returned parser.
+     */
+    public <T> Parser<T> instrument(Parser<T> parser) {
+        return new GrammarRewriter(false) {
+            @Override
+            <R> Parser<R> rewriteNode(Parser<R> node) {
+                Entry entry = new Entry(entries.size() + 1, node.toString());
+                entries.add(entry);
+                return new ProfiledParser<R>(node, ParseProfile.this, entry);
+            }
+        }.rewrite(parser.link());
+    }
+
+    /**
+     * Returns the entries of all instrumented nodes, in the order they were instrumented.
+     */
+    public List<Entry> entries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Resets the statistics of all entries.
+     */
+    public void clear() {
+        for (Entry entry : entries) {
+            entry.calls = 0;
+            entry.successes = 0;
+            entry.failures = 0;
+            entry.consumed = 0;
+            entry.rescanned = 0;
+            entry.inclusiveNanos = 0;
+            entry.exclusiveNanos = 0;
+        }
+    }
+
+    /**
+     * Returns the report of the nodes that ran, by descending exclusive time, one line per node.
+     * Times are in microseconds.
+     */
+    @Override
+    public String toString() {
+        ArrayList<Entry> sorted = new ArrayList<Entry>(entries);
+        Collections.sort(sorted, BY_EXCLUSIVE_TIME);
+        StringBuilder report = new StringBuilder(String.format("%10s %10s %10s %10s %10s %12s %12s  %s%n",
+                "calls", "successes", "failures", "consumed", "rescanned", "inclusive", "exclusive", "parser"));
+        for (Entry entry : sorted) {
+            if (entry.calls > 0) report.append(entry).append(String.format("%n"));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Runs {@code parser} in {@code context}, recording the run in {@code entry}.
+     */
+    boolean run(Parser<?> parser, Entry entry, ParseContext context) throws Exception {
+        final int from = context.getIndex();
+        // a new parse.
+        if (depth == 0) scanned = from;
+        final int scannedBefore = scanned;
+        if (depth == childNanos.length) {
+            long[] grown = new long[depth * 2];
+            System.arraycopy(childNanos, 0, grown, 0, depth);
+            childNanos = grown;
+        }
+        childNanos[depth++] = 0;
+        final long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            ok = parser.apply(context);
+            return ok;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            long children = childNanos[--depth];
+            if (depth > 0) childNanos[depth - 1] += nanos;
+            entry.calls++;
+            entry.inclusiveNanos += nanos;
+            entry.exclusiveNanos += nanos - children;
+            if (ok) {
+                int to = context.getIndex();
+                entry.successes++;
+                entry.consumed += to - from;
+                if (to > from && from < scannedBefore) entry.rescanned += Math.min(to, scannedBefore) - from;
+                if (to > scanned) scanned = to;
+            } else {
+                entry.failures++;
+            }
+        }
+    }
+}
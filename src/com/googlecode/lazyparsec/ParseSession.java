@@ -0,0 +1,80 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Parses one input after another with the same {@link Parser}, reusing the parse state, the error
+ * buffer, the memo table and the {@link SourceLocator} between inputs. Is useful to cut the
+ * per-parse allocation when a large number of short inputs are parsed.
+ * <p/>
+ * <p> A session is <EM>not</EM> multi-thread safe. It is meant to be confined to one thread, such as
+ * by keeping one session per thread in a {@link ThreadLocal}.
+ */
+public final class ParseSession<T> {
+    private final Parser<T> parser;
+    private ScannerState state = null;
+    private DefaultSourceLocator locator = null;
+
+    ParseSession(Parser<T> parser) {
+        this.parser = parser.optimized().followedBy(Parsers.EOF);
+    }
+
+    /**
+     * Parses {@code source}.
+     *
+     * @param source     the source string
+     * @param moduleName the name of the module, this name appears in error message
+     * @return the result
+     */
+    public T parse(CharSequence source, String moduleName) {
+        return ParseMonitor.parse(start(moduleName, source), parser);
+    }
+
+    /**
+     * Parses {@code source}.
+     */
+    public T parse(CharSequence source) {
+        return parse(source, null);
+    }
+
+    /**
+     * Parses {@code source}, or returns {@code null} if it cannot be parsed, without recording any
+     * error. See {@link Parser#parseOrNull(CharSequence)}.
+     */
+    public T parseOrNull(CharSequence source) {
+        ScannerState state = start(null, source);
+        return ParseMonitor.matches(state, parser) ? parser.getReturn(state) : null;
+    }
+
+    /**
+     * Whether {@code source} can be parsed, without recording any error.
+     * See {@link Parser#matches(CharSequence)}.
+     */
+    public boolean matches(CharSequence source) {
+        return ParseMonitor.matches(start(null, source), parser);
+    }
+
+    private ScannerState start(String moduleName, CharSequence source) {
+        if (state == null) {
+            locator = new DefaultSourceLocator(source);
+            state = new ScannerState(moduleName, source, 0, locator);
+        } else {
+            locator.reset(source);
+            state.reset(moduleName, source, locator);
+        }
+        return state;
+    }
+}
@@ -22,8 +22,11 @@ import com.googlecode.lazyparsec.util.Checks;
 import com.googlecode.totallylazy.Callable1;
 import com.googlecode.totallylazy.Callable2;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
@@ -62,6 +65,15 @@ import static com.googlecode.lazyparsec.util.Checks.checkArgument;
  */
 public abstract class Parser<T> {
 
+    private static final Parser<?>[] NO_CHILDREN = {};
+
+    // how many reference rules running nested at a stack overflow blame it on the nesting.
+    private static final int DEEP_NESTING = 256;
+
+    // the optimized equivalent of this parser, computed upon first use. Volatile so that a thread
+    // reading it sees the graph fully built; two threads may still both compute it.
+    private volatile Parser<T> optimized = null;
+
     Parser() {
     }
 
@@ -76,6 +88,8 @@ public abstract class Parser<T> {
      * Parser&lt;Foo> fooParser = fooParser(barParser);
      * ref.set(fooParser);
      * </pre>
+     * <p/>
+     * <p> Left recursive references are only supported in {@link Parser#packrat()} mode.
      */
     public static final class Reference<T> extends AtomicReference<Parser<T>> {
         private static final long serialVersionUID = -8778697271614979497L;
@@ -273,6 +287,14 @@ public abstract class Parser<T> {
         return new PeekParser<T>(this);
     }
 
+    /**
+     * A {@link Parser} that runs {@code this} and then {@link Parsers#cut() cuts}, so that once
+     * {@code this} succeeds, no other alternative of the innermost enclosing choice is tried.
+     */
+    public final Parser<T> commit() {
+        return followedBy(Parsers.cut());
+    }
+
     /**
      * A {@link Parser} that undoes any partial match if {@code this} fails.
      */
@@ -280,6 +302,66 @@ public abstract class Parser<T> {
         return new AtomicParser<T>(this);
     }
 
+    /**
+     * A {@link Parser} that memoizes the outcome of {@code this} at each input position, so that
+     * running it again at the same position after backtracking, as alternatives of {@link #or(Parser)}
+     * or {@link Parsers#longest(Parser[])} do, is a table lookup instead of a re-parse.
+     * <p/>
+     * <p> Outcomes are kept in a bounded table for the duration of a parse. The same result object
+     * may be returned each time a memoized outcome is reused, so it should not be mutated.
+     */
+    public final Parser<T> memoize() {
+        return new MemoParser<T>(this);
+    }
+
+    /**
+     * Returns a {@link Parser} equivalent to {@code this}, with the grammar graph linked for faster
+     * parsing: every {@link Reference} reachable from {@code this} is resolved now, the
+     * references that are not part of a recursion are replaced by the parsers they refer to, and
+     * the whole graph is optimized as by {@link Parsers#optimize(Parser)}.
+     * <p/>
+     * <p> Results and errors are the same as those of {@code this}, but later changes to the
+     * references are not seen by the returned parser. Since only the remaining references are
+     * memoized in {@link #packrat()} mode, use {@link #memoize()} explicitly for other rules that
+     * benefit from memoization.
+     * <p/>
+     * <p> No code is generated: the linked graph is still run one combinator at a time, so this
+     * removes indirection, not the virtual calls from one combinator to the next.
+     */
+    public final Parser<T> link() {
+        return new GrammarOptimizer(true).rewrite(this);
+    }
+
+    /**
+     * A {@link Parser} that runs {@code this} in packrat mode, where the outcome of every rule
+     * referenced through {@link Reference#lazy()} is memoized as if by {@link #memoize()}.
+     * <p/>
+     * <p> Packrat mode bounds the re-parsing caused by heavy backtracking in recursive grammars.
+     * It also supports direct and indirect left recursion through {@link Reference#lazy()}: a
+     * rule such as {@code expr ::= expr '.' ident | ident} first matches its non left recursive
+     * alternatives, then is run again with that match as the answer of the recursive reference,
+     * as long as the overall match keeps getting longer.
+     */
+    public final Parser<T> packrat() {
+        return new PackratParser<T>(this);
+    }
+
+    /**
+     * A {@link Parser} that runs {@code this} with at most {@code depth} rules referenced through
+     * {@link Reference#lazy()} running nested in one another. Going deeper stops parsing with a
+     * {@link ParserException} at the position reached, instead of running out of stack.
+     * <p/>
+     * <p> Each level of a recursive grammar uses stack space, so deeply nested input can otherwise
+     * overflow the stack of the parsing thread, which is also reported as a {@link ParserException}
+     * but only once the stack is exhausted. This limits the nesting, it does not raise it: with the
+     * default thread stack, grammars typically overflow after one or two thousand levels, and
+     * deeper input still needs a thread with a larger stack.
+     */
+    public final Parser<T> maxDepth(int depth) {
+        checkArgument(depth >= 0, "depth < 0");
+        return new MaxDepthParser<T>(this, depth);
+    }
+
     /**
      * A {@link Parser} that runs {@code this} parser and sets the number of logical steps explicitly
      * to {@code n}.
@@ -516,10 +598,24 @@ public abstract class Parser<T> {
      * A {@link Parser} that takes as input the tokens returned by {@code tokenizer}
      * delimited by {@code delim}, and runs {@code this} to parse the tokens.
      * <p/>
+     * <p> Is equivalent to {@code from(tokenizer.lexer(delim))}, but keeps the tokens in a compact
+     * buffer instead of a list of {@link Token}, and reuses the buffer in a {@link ParseSession}.
+     * <p/>
      * <p> {@code this} must be a token level parser.
      */
     public final Parser<T> from(Parser<?> tokenizer, Parser<Void> delim) {
-        return from(tokenizer.lexer(delim));
+        return Parsers.nested(new LexerParser(tokenizer, delim), followedBy(Parsers.EOF));
+    }
+
+    /**
+     * Returns an {@link IncrementalParser} that parses the tokens returned by {@code tokenizer}
+     * delimited by {@code delim} with {@code this}, as {@link #from(Parser, Parser)} does, and
+     * parses again after edits to the source, lexing and parsing only what the edits changed.
+     * <p/>
+     * <p> {@code this} must be a token level parser.
+     */
+    public final IncrementalParser<T> incremental(Parser<?> tokenizer, Parser<Void> delim) {
+        return new IncrementalParser<T>(this, tokenizer, delim);
     }
 
     /**
@@ -549,7 +645,7 @@ public abstract class Parser<T> {
      * @return the result
      */
     final T parse(CharSequence source, String moduleName, SourceLocator sourceLocator) {
-        return Parsers.parse(source, followedBy(Parsers.EOF), sourceLocator, moduleName);
+        return Parsers.parse(source, optimized().followedBy(Parsers.EOF), sourceLocator, moduleName);
     }
 
     /**
@@ -571,6 +667,35 @@ public abstract class Parser<T> {
     }
 
 
+    /**
+     * Parses {@code source}, or returns {@code null} if it cannot be parsed. No error is recorded
+     * along the way, which saves the cost of error tracking when most inputs are expected to be
+     * valid. Use {@link #matches(CharSequence)} instead if the result itself can be {@code null}.
+     */
+    public final T parseOrNull(CharSequence source) {
+        Parser<T> parser = optimized().followedBy(Parsers.EOF);
+        ScannerState state = new ScannerState(null, source, 0, new DefaultSourceLocator(source));
+        return ParseMonitor.matches(state, parser) ? parser.getReturn(state) : null;
+    }
+
+    /**
+     * Whether {@code source} can be parsed. Like {@link #parseOrNull(CharSequence)}, no error is
+     * recorded along the way.
+     */
+    public final boolean matches(CharSequence source) {
+        return ParseMonitor.matches(
+                new ScannerState(null, source, 0, new DefaultSourceLocator(source)),
+                optimized().followedBy(Parsers.EOF));
+    }
+
+    /**
+     * Creates a {@link ParseSession} that parses one input after another with {@code this},
+     * reusing the same parse state instead of allocating it afresh for every input.
+     */
+    public final ParseSession<T> newSession() {
+        return new ParseSession<T>(this);
+    }
+
     /**
      * Parses source read from {@code readable}.
      */
@@ -580,15 +705,73 @@ public abstract class Parser<T> {
 
     /**
      * Parses source read from {@code readable}.
+     * <p/>
+     * <p> The source is read as it is parsed, and only the characters from the oldest position
+     * that an enclosing choice, repetition, {@link #atomic()}, {@link #peek()} or {@link #source()}
+     * may still go back to are kept in memory, so that a grammar repeating a record parses a file
+     * of any size in a bounded amount of memory. A {@link Parsers#cut()} in an alternative gives up
+     * going back to where the alternative started. The characters lexed for a token level parser
+     * are kept until it is done. How far ahead the grammar reads is not limited.
      *
      * @param readable   where the source is read from
      * @param moduleName the name of the module, this name appears in error message
      * @return the result
      */
     public final T parse(Readable readable, String moduleName) throws IOException {
-        StringBuilder builder = new StringBuilder();
-        copy(readable, builder);
-        return parse(builder, moduleName);
+        StreamingSource source = new StreamingSource(readable);
+        try {
+            return parse(source, moduleName, source);
+        } catch (ParserException e) {
+            if (e.getCause() instanceof StreamingSource.ReadFailure) {
+                throw ((StreamingSource.ReadFailure) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Parses the bytes between the position and the limit of {@code bytes}, which are not changed,
+     * each read as the ISO-8859-1 character of the same value.
+     * <p/>
+     * <p> No byte is decoded ahead of time or copied, and every index, such as of {@link Token#index()},
+     * {@link Parsers#INDEX} or of the error location, is the byte offset from the position. Grammars
+     * of ASCII protocols and formats therefore run as they are on heap or direct buffers. Any byte
+     * of 0x80 or above, such as of a UTF-8 sequence, reads as one character of that value.
+     */
+    public final T parse(ByteBuffer bytes) {
+        return parse(bytes, null);
+    }
+
+    /**
+     * Parses the bytes between the position and the limit of {@code bytes} as by
+     * {@link #parse(ByteBuffer)}.
+     *
+     * @param bytes      the source bytes
+     * @param moduleName the name of the module, this name appears in error message
+     * @return the result
+     */
+    public final T parse(ByteBuffer bytes, String moduleName) {
+        return parse(new ByteSource(bytes), moduleName);
+    }
+
+    /**
+     * Parses the UTF-8 source in {@code file}. The file path appears in error messages.
+     */
+    public final T parse(File file) throws IOException {
+        return parse(file, Charset.forName("UTF-8"));
+    }
+
+    /**
+     * Parses the source in {@code file}, encoded in {@code charset}. The file path appears in error
+     * messages.
+     * <p/>
+     * <p> The file is memory-mapped instead of read into a string. ASCII and ISO-8859-1 characters
+     * are read straight from the mapped bytes, UTF-8 characters are decoded as they are read, and
+     * any other charset is decoded up front. Files larger than 2GB can not be parsed.
+     */
+    public final T parse(File file, Charset charset) throws IOException {
+        CharSequence source = MappedFile.map(file, charset);
+        return parse(source, file.getPath());
     }
 
     /**
@@ -616,13 +799,56 @@ public abstract class Parser<T> {
                 e, null, context.module, context.locator.locate(context.getIndex()));
     }
 
+    /**
+     * Runs {@code this} as the outermost parser of {@code context}, converting any exception thrown by
+     * a user callback into a {@link ParserException} at the position where parsing stopped.
+     * <p/>
+     * <p> Combinators call {@link #apply(ParseContext)} on each other directly, so that exceptions
+     * are handled once here instead of in every frame.
+     */
     final boolean run(ParseContext context) {
         try {
             return apply(context);
         } catch (Exception e) {
             throw asParserException(e, context);
+        } catch (StackOverflowError e) {
+            // the reference rules still running tell whether deep nesting used up the stack.
+            if (context.depth < DEEP_NESTING) throw context.abort("stack overflow while parsing");
+            throw context.abort("input nested " + context.depth
+                    + " rules deep for the stack, consider Parser.maxDepth(int)");
         }
     }
 
     abstract boolean apply(ParseContext context) throws Exception;
+
+    /**
+     * The optimized equivalent of {@code this}, as returned by {@link Parsers#optimize(Parser)}.
+     * Is used in place of {@code this} when it is parsed with or run through a reference.
+     */
+    final Parser<T> optimized() {
+        Parser<T> p = optimized;
+        if (p == null) {
+            p = Parsers.optimize(this);
+            p.optimized = p;
+            optimized = p;
+        }
+        return p;
+    }
+
+    /**
+     * The parsers that {@code this} runs, for walking the grammar graph. Empty for parsers that run
+     * no other parser and for parsers that are opaque to the graph. The returned array must not be
+     * modified.
+     */
+    Parser<?>[] children() {
+        return NO_CHILDREN;
+    }
+
+    /**
+     * Returns a parser that behaves as {@code this} except that it runs {@code children} in place of
+     * {@link #children()}, for rewriting the grammar graph.
+     */
+    Parser<T> withChildren(Parser<?>[] children) {
+        return this;
+    }
 }
@@ -27,14 +27,14 @@ final class ParserInternals {
     static void runForBestFit(
             IntOrder order, Parser<?>[] parsers, int from,
             ParseContext state,
-            Object originalResult, int originalStep, int originalAt) {
+            Object originalResult, int originalStep, int originalAt) throws Exception {
         int bestAt = state.at;
         int bestStep = state.step;
         Object bestResult = state.result;
         for (int i = from; i < parsers.length; i++) {
             state.set(originalStep, originalAt, originalResult);
             Parser<?> parser = parsers[i];
-            boolean ok = parser.run(state);
+            boolean ok = parser.apply(state);
             if (!ok) continue;
             int at2 = state.at;
             if (order.compare(at2, bestAt)) {
@@ -46,14 +46,14 @@ final class ParserInternals {
         state.set(bestStep, bestAt, bestResult);
     }
 
-    static boolean repeat(Parser<?> parser, int n, ParseContext context) {
+    static boolean repeat(Parser<?> parser, int n, ParseContext context) throws Exception {
         for (int i = 0; i < n; i++) {
-            if (!parser.run(context)) return false;
+            if (!parser.apply(context)) return false;
         }
         return true;
     }
 
-    static boolean many(final Parser<?> parser, final ParseContext context) {
+    static boolean many(final Parser<?> parser, final ParseContext context) throws Exception {
         for (int at = context.at, step = context.step; ; step = context.step) {
             if (!greedyRun(parser, context)) return stillThere(context, at, step);
             int at2 = context.at;
@@ -62,7 +62,7 @@ final class ParserInternals {
         }
     }
 
-    static boolean repeatAtMost(Parser<?> parser, int max, ParseContext context) {
+    static boolean repeatAtMost(Parser<?> parser, int max, ParseContext context) throws Exception {
         for (int i = 0; i < max; i++) {
             int at = context.at;
             int step = context.step;
@@ -72,16 +72,16 @@ final class ParserInternals {
     }
 
     static <T> boolean repeat(
-            Parser<? extends T> parser, int n, Collection<T> collection, ParseContext context) {
+            Parser<? extends T> parser, int n, Collection<T> collection, ParseContext context) throws Exception {
         for (int i = 0; i < n; i++) {
-            if (!parser.run(context)) return false;
+            if (!parser.apply(context)) return false;
             collection.add(parser.getReturn(context));
         }
         return true;
     }
 
     static <T> boolean repeatAtMost(
-            Parser<? extends T> parser, int max, Collection<T> collection, ParseContext context) {
+            Parser<? extends T> parser, int max, Collection<T> collection, ParseContext context) throws Exception {
         for (int i = 0; i < max; i++) {
             int at = context.at;
             int step = context.step;
@@ -92,7 +92,7 @@ final class ParserInternals {
     }
 
     static <T> boolean many(
-            Parser<? extends T> parser, Collection<T> collection, ParseContext context) {
+            Parser<? extends T> parser, Collection<T> collection, ParseContext context) throws Exception {
         for (int at = context.at, step = context.step; ; step = context.step) {
             if (!greedyRun(parser, context)) return stillThere(context, at, step);
             int at2 = context.at;
@@ -122,7 +122,7 @@ final class ParserInternals {
 
         // always copy error because there could be false alarms in the character level.
         // For example, a "or" parser nested in a "many" failed in one of its branches.
-        copyError(context, freshInitState);
+        if (context.diagnostics) copyError(context, freshInitState);
         return false;
     }
 
@@ -136,19 +136,23 @@ final class ParserInternals {
     }
 
     /**
-     * Runs {@code parser} in greedy mode. Currently it does nothing special.
+     * Runs {@code parser} in greedy mode, holding the position it starts at, which
+     * {@link #stillThere(ParseContext, int, int)} may go back to if it fails.
      * May want to suppress irrelevant errors (such the 'x expected' in x*).
      */
-    static boolean greedyRun(Parser<?> parser, ParseContext context) {
-        return parser.run(context);
+    static boolean greedyRun(Parser<?> parser, ParseContext context) throws Exception {
+        context.mark();
+        boolean ok = parser.apply(context);
+        context.unmark();
+        return ok;
     }
 
     /**
      * Runs {@code parser} with error recording suppressed.
      */
-    static boolean runWithoutRecordingError(Parser<?> parser, ParseContext context) {
+    static boolean runWithoutRecordingError(Parser<?> parser, ParseContext context) throws Exception {
         boolean oldValue = context.suppressError(true);
-        boolean ok = parser.run(context);
+        boolean ok = parser.apply(context);
         context.suppressError(oldValue);
         return ok;
     }
@@ -23,28 +23,37 @@ package com.googlecode.lazyparsec;
  */
 final class ParserState extends ParseContext {
 
-    private final Token[] input;
+    private final TokenBuffer input;
 
     // in case a terminating eof token is not explicitly created, the implicit one is used.
     private final int endIndex;
 
     @Override
     boolean isEof() {
-        return at >= input.length;
+        mergeReads(at);
+        return at >= input.size();
     }
 
     @Override
     int toIndex(int pos) {
-        if (pos >= input.length) return endIndex;
-        return input[pos].index();
+        mergeReads(pos);
+        if (pos >= input.size()) return endIndex;
+        return input.index(pos);
     }
 
     @Override
     Token getToken() {
-        return input[at];
+        mergeReads(at);
+        return input.token(at);
     }
 
-    ParserState(String module, CharSequence source, Token[] input, int at,
+    @Override
+    Object getTokenValue() {
+        mergeReads(at);
+        return input.value(at);
+    }
+
+    ParserState(String module, CharSequence source, TokenBuffer input, int at,
                 SourceLocator locator, int endIndex, Object result) {
         super(source, result, at, module, locator);
         this.input = input;
@@ -63,7 +72,8 @@ final class ParserState extends ParseContext {
 
     @Override
     String getInputName(int pos) {
-        if (pos >= input.length) return EOF;
-        return input[pos].toString();
+        mergeReads(pos);
+        if (pos >= input.size()) return EOF;
+        return String.valueOf(input.value(pos));
     }
 }
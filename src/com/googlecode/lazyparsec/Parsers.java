@@ -49,9 +49,10 @@ public final class Parsers {
     /**
      * A {@link Parser} that consumes a token. The token value is returned from the parser.
      */
-    public static final Parser<Object> ANY_TOKEN = token(new TokenMap<Object>() {
-        public Object map(Token tok) {
-            return tok.value();
+    public static final Parser<Object> ANY_TOKEN = token(new TokenValueMap<Object>() {
+        @Override
+        Object mapValue(Object value) {
+            return value;
         }
 
         @Override
@@ -82,6 +83,21 @@ public final class Parsers {
         return ALWAYS;
     }
 
+    /**
+     * A {@link Parser} that always succeeds, committing to the alternative it runs in: if the
+     * innermost enclosing {@link #or or()}, {@link #plus plus()}, {@link #longer longer()} or
+     * {@link #longest longest()} alternative fails after {@code cut()}, no other alternative is
+     * tried. A successful committed alternative of {@link #longest longest()} is not compared with
+     * the remaining ones.
+     * <p/>
+     * <p> When parsing a {@link Readable}, what was read before the alternative can then be
+     * released, unless an enclosing choice, repetition, {@link Parser#atomic()} or
+     * {@link Parser#peek()} may still go back to it.
+     */
+    public static Parser<Void> cut() {
+        return CutParser.INSTANCE;
+    }
+
     /**
      * {@link Parser} that always fails.
      */
@@ -110,14 +126,30 @@ public final class Parsers {
      */
     static <T> T parse(
             CharSequence src, Parser<T> parser, SourceLocator locator, String module) {
-        ScannerState context = new ScannerState(module, src, 0, locator);
+        return ParseMonitor.parse(new ScannerState(module, src, 0, locator), parser);
+    }
+
+    /**
+     * Runs a character level {@code parser} in {@code context}.
+     */
+    static <T> T parse(ScannerState context, Parser<T> parser) {
         if (!parser.run(context)) {
             throw new ParserException(
-                    context.renderError(), context.module, locator.locate(context.errorIndex()));
+                    context.renderError(), context.module, context.locator.locate(context.errorIndex()));
         }
         return parser.getReturn(context);
     }
 
+    /**
+     * Runs a character level {@code parser} in {@code context} without recording any error.
+     *
+     * @return whether {@code parser} succeeded.
+     */
+    static boolean matches(ScannerState context, Parser<?> parser) {
+        context.disableDiagnostics();
+        return parser.run(context);
+    }
+
     /**
      * A {@link Parser} that always succeeds and invokes {@link Runnable#run()} against
      * {@code runnable}.
@@ -127,12 +159,12 @@ public final class Parsers {
     }
 
     /**
-     * Converts a parser of a collection of {@link Token} to a parser of an array of {@code Token}.
+     * Converts a parser of a collection of {@link Token} to a parser of a {@link TokenBuffer}.
      */
-    static Parser<Token[]> tokens(final Parser<? extends Collection<Token>> parser) {
-        return parser.map(new Callable1<Collection<Token>, Token[]>() {
-            public Token[] call(Collection<Token> list) {
-                return list.toArray(new Token[list.size()]);
+    static Parser<TokenBuffer> tokens(final Parser<? extends Collection<Token>> parser) {
+        return parser.map(new Callable1<Collection<Token>, TokenBuffer>() {
+            public TokenBuffer call(Collection<Token> list) {
+                return TokenBuffer.of(list);
             }
 
             @Override
@@ -143,37 +175,68 @@ public final class Parsers {
     }
 
     /**
-     * A {@link Parser} that takes as input the array of {@link Token} returned from {@code lexer},
+     * A {@link Parser} that takes as input the {@link TokenBuffer} returned from {@code lexer},
      * and feeds the tokens as input into {@code parser}.
      * <p/>
      * <p> It fails if either {@code lexer} or {@code parser} fails.
      *
-     * @param lexer  the lexer object that returns an array of Tok objects.
+     * @param lexer  the lexer object that returns the tokens.
      * @param parser the token level parser object.
      * @return the new Parser object.
      */
-    static <T> Parser<T> nested(Parser<Token[]> lexer, Parser<? extends T> parser) {
+    static <T> Parser<T> nested(Parser<TokenBuffer> lexer, Parser<? extends T> parser) {
         return new NestedParser<T>(lexer, parser);
     }
 
     /******************** monadic combinators ******************* */
 
     /**
-     * A {@link Parser} that always returns {@code v} regardless of input.
+     * Returns a {@link Parser} equivalent to {@code parser} that does less work per character. Nested
+     * {@link #or(Parser[])} alternatives and nested sequences are flattened, {@link #never()}
+     * alternatives and constants whose result is discarded are dropped, {@code map(f).map(g)} is
+     * run as one map, and consecutive or repeatedly skipped pattern scanners are run in one loop.
+     * Results and errors are the same as those of {@code parser}.
+     * <p/>
+     * <p> Rules behind a {@link Parser.Reference} are left alone, so that later changes to the
+     * reference are still seen. Each of them is optimized the first time it is run instead, as is
+     * every parser the first time it is used to parse.
      */
-    public static <T> Parser<T> constant(final T v) {
-        return new Parser<T>() {
-            @Override
-            boolean apply(ParseContext context) {
-                context.result = v;
-                return true;
-            }
+    public static <T> Parser<T> optimize(Parser<T> parser) {
+        return new GrammarOptimizer(false).rewrite(parser);
+    }
 
-            @Override
-            public String toString() {
-                return String.valueOf(v);
-            }
-        };
+    /**
+     * Returns a {@link Parser} equivalent to {@code parser} that records how often each of its
+     * rules runs, and for how long, in {@code profile}.
+     *
+     * @see ParseProfile#instrument(Parser)
+     */
+    public static <T> Parser<T> profile(Parser<T> parser, ParseProfile profile) {
+        return profile.instrument(parser);
+    }
+
+    /**
+     * Returns a {@link Parser} equivalent to {@code parser} that tells {@code listener} what it does
+     * as it parses. The grammar is linked as by {@link Parser#link()} first, and
+     * {@code parser} itself is not changed.
+     */
+    public static <T> Parser<T> listen(Parser<T> parser, ParseListener listener) {
+        return listener.instrument(parser);
+    }
+
+    /**
+     * Looks for rules of {@code parser} that recurse without consuming input, loops that may not
+     * consume input, and alternatives that start with the same input, without parsing anything.
+     */
+    public static GrammarAnalysis analyze(Parser<?> parser) {
+        return GrammarAnalysis.of(parser);
+    }
+
+    /**
+     * A {@link Parser} that always returns {@code v} regardless of input.
+     */
+    public static <T> Parser<T> constant(T v) {
+        return new ConstantParser<T>(v);
     }
 
     /**
@@ -588,7 +651,7 @@ public final class Parsers {
     @SuppressWarnings("unchecked")
     static <From> boolean runNext(ParseContext state, Callable1<? super From, ? extends Parser<?>> next) throws Exception {
         Parser<?> parser = next.call((From) state.result);
-        return parser.run(state);
+        return parser.apply(state);
     }
 
     @SuppressWarnings("unchecked")
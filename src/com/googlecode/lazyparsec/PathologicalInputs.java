@@ -0,0 +1,349 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+import com.googlecode.lazyparsec.pattern.Pattern;
+import com.googlecode.lazyparsec.util.Lists;
+import com.googlecode.totallylazy.Callable1;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static com.googlecode.lazyparsec.util.Checks.checkArgument;
+
+/**
+ * Searches for the inputs that make a character level grammar do the most work, so that grammars
+ * fed with untrusted input can be checked for exponential backtracking before they are released.
+ * <p/>
+ * <p> Work is counted in steps, one per parser run, including the runs of the parsers built while
+ * parsing, such as by {@link Parser#next(com.googlecode.totallylazy.Callable1)}. Inputs are built from the literals and the
+ * characters the grammar recognizes, and are mutated the way that makes backtracking parsers
+ * re-scan: repeating part of an input, inserting literals or literals cut short, and splicing two
+ * inputs together. Inputs that take more steps are kept and mutated further. The search is
+ * deterministic, so the same grammar always gives the same result.
+ * <p/>
+ * <p> A grammar whose worst input takes many steps per character, or reaches the step limit, has
+ * a rule that can be driven into super-linear time, typically alternatives sharing a long prefix
+ * inside a recursion. {@link Parser#memoize()}, {@link Parser#packrat()} or factoring the common
+ * prefix out of the alternatives bound it.
+ */
+public final class PathologicalInputs {
+
+    private static final int POPULATION = 16;
+    private static final String SAMPLES = sampleCharacters();
+    private static final long SEED = 0x5eed;
+
+    // the literals and sample characters the grammar recognizes, as found so far.
+    private final LinkedHashSet<String> literals = new LinkedHashSet<String>();
+    private final LinkedHashSet<Character> alphabet = new LinkedHashSet<Character>();
+    private final ArrayList<String> pieces = Lists.arrayList();
+    private final StepCounter counter;
+    private final Parser<?> parser;
+    private final int maxLength;
+    private final Random random = new Random(SEED);
+
+    // instruments the parsers built while parsing, afresh for each input.
+    private GrammarRewriter dynamic = null;
+
+    /**
+     * The worst input found by {@link PathologicalInputs#search(Parser, int, int, long)}.
+     */
+    public static final class Result {
+        private final String input;
+        private final long steps;
+        private final boolean limitReached;
+
+        Result(String input, long steps, boolean limitReached) {
+            this.input = input;
+            this.steps = steps;
+            this.limitReached = limitReached;
+        }
+
+        public String getInput() {
+            return input;
+        }
+
+        /**
+         * The number of parser runs parsing {@link #getInput()} took, up to the step limit.
+         */
+        public long getSteps() {
+            return steps;
+        }
+
+        /**
+         * Whether parsing {@link #getInput()} was stopped at the step limit.
+         */
+        public boolean isLimitReached() {
+            return limitReached;
+        }
+
+        @Override
+        public String toString() {
+            return (limitReached ? "over " : "") + steps + " steps for " + input.length() + " characters: \""
+                    + input + "\"";
+        }
+    }
+
+    /**
+     * Searches {@code parser} for its worst input of at most {@code maxLength} characters, trying
+     * 2000 inputs and stopping any parse after a million steps.
+     */
+    public static Result search(Parser<?> parser, int maxLength) {
+        return search(parser, maxLength, 2000, 1000000);
+    }
+
+    /**
+     * Searches {@code parser} for its worst input of at most {@code maxLength} characters.
+     *
+     * @param attempts the number of inputs tried.
+     * @param maxSteps the number of steps after which a parse is stopped and its input reported.
+     */
+    public static Result search(Parser<?> parser, int maxLength, int attempts, long maxSteps) {
+        checkArgument(maxLength > 0, "maxLength <= 0");
+        checkArgument(maxSteps > 0, "maxSteps <= 0");
+        return new PathologicalInputs(parser, maxLength, maxSteps).search(attempts);
+    }
+
+    private PathologicalInputs(Parser<?> parser, int maxLength, long maxSteps) {
+        this.counter = new StepCounter(maxSteps);
+        this.maxLength = maxLength;
+        this.parser = counting().rewrite(parser.link());
+        updatePieces();
+        if (pieces.isEmpty()) pieces.add("a");
+    }
+
+    private GrammarRewriter counting() {
+        return new GrammarRewriter(false) {
+            @Override
+            <T> Parser<T> rewriteNode(Parser<T> node) {
+                collect(node, literals, alphabet);
+                return count(node);
+            }
+        };
+    }
+
+    /**
+     * Adds the literals and characters found so far, including in the parsers built while
+     * parsing, to the pieces inputs are made of.
+     */
+    private void updatePieces() {
+        for (String literal : literals) {
+            if (!pieces.contains(literal)) pieces.add(literal);
+        }
+        for (char c : alphabet) {
+            String piece = String.valueOf(c);
+            if (!pieces.contains(piece)) pieces.add(piece);
+        }
+    }
+
+    /**
+     * Counts the runs of {@code node}, and of the parsers it builds while parsing.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Parser<T> count(Parser<T> node) {
+        if (node instanceof BindNextParser) {
+            BindNextParser<Object, T> bind = (BindNextParser<Object, T>) node;
+            node = new BindNextParser<Object, T>(bind.parser, counting(bind.callable1));
+        } else if (node instanceof IfElseParser) {
+            IfElseParser<T, Object> ifelse = (IfElseParser<T, Object>) node;
+            node = new IfElseParser<T, Object>(ifelse.cond, counting(ifelse.consequence), ifelse.alternative);
+        }
+        return new CountingParser<T>(node, counter);
+    }
+
+    private <F, T> Callable1<F, Parser<? extends T>> counting(
+            final Callable1<? super F, ? extends Parser<? extends T>> next) {
+        return new Callable1<F, Parser<? extends T>>() {
+            public Parser<? extends T> call(F from) throws Exception {
+                return dynamic.rewrite(next.call(from));
+            }
+
+            @Override
+            public String toString() {
+                return next.toString();
+            }
+        };
+    }
+
+    private Result search(int attempts) {
+        ArrayList<String> population = Lists.arrayList();
+        ArrayList<Long> scores = Lists.arrayList();
+        Set<String> tried = new HashSet<String>();
+        Result worst = new Result("", 0, false);
+        ArrayList<String> seeds = Lists.arrayList();
+        seeds.add("");
+        seeds.addAll(pieces);
+        for (int i = 0; i < attempts; i++) {
+            String input = i < seeds.size() ? seeds.get(i) : mutate(population);
+            if (input.length() > maxLength) input = input.substring(0, maxLength);
+            if (!tried.add(input)) continue;
+            boolean limitReached = !run(input);
+            long steps = counter.steps;
+            if (limitReached) return new Result(input, steps, true);
+            if (steps > worst.steps || steps == worst.steps && input.length() < worst.input.length()) {
+                worst = new Result(input, steps, false);
+            }
+            keep(population, scores, input, steps);
+        }
+        return worst;
+    }
+
+    /**
+     * Parses {@code input}, returning {@code false} if stopped at the step limit.
+     */
+    private boolean run(String input) {
+        counter.steps = 0;
+        dynamic = counting();
+        try {
+            parser.matches(input);
+            return true;
+        } catch (ParserException e) {
+            if (e.getCause() instanceof StepLimitReached) return false;
+            // callbacks failing on odd input, or too deeply nested input.
+            return true;
+        } finally {
+            updatePieces();
+        }
+    }
+
+    private static void keep(ArrayList<String> population, ArrayList<Long> scores, String input, long steps) {
+        int i = 0;
+        while (i < scores.size() && scores.get(i) >= steps) i++;
+        if (i >= POPULATION) return;
+        population.add(i, input);
+        scores.add(i, steps);
+        if (population.size() > POPULATION) {
+            population.remove(POPULATION);
+            scores.remove(POPULATION);
+        }
+    }
+
+    private String mutate(ArrayList<String> population) {
+        String input = population.isEmpty() ? "" : population.get(random.nextInt(population.size()));
+        String piece = pieces.get(random.nextInt(pieces.size()));
+        int at = random.nextInt(input.length() + 1);
+        switch (random.nextInt(6)) {
+            case 0:
+                return input.substring(0, at) + piece + input.substring(at);
+            case 1: {
+                // a literal cut short, as in a near miss of a keyword.
+                String prefix = piece.substring(0, random.nextInt(piece.length()) + (piece.length() == 1 ? 1 : 0));
+                return input.substring(0, at) + prefix + input.substring(at);
+            }
+            case 2: {
+                // repeat a part of the input.
+                int end = at + random.nextInt(input.length() - at + 1);
+                String part = input.substring(at, end);
+                return input.substring(0, end) + part + part + input.substring(end);
+            }
+            case 3: {
+                if (input.length() == 0) return piece;
+                int end = at + random.nextInt(input.length() - at + 1);
+                return input.substring(0, at) + input.substring(end);
+            }
+            case 4: {
+                if (population.isEmpty()) return input + piece;
+                String other = population.get(random.nextInt(population.size()));
+                return input.substring(0, at) + other.substring(random.nextInt(other.length() + 1));
+            }
+            default:
+                return input + piece;
+        }
+    }
+
+    private static void collect(Parser<?> node, Set<String> literals, Set<Character> alphabet) {
+        if (node instanceof IsCharScanner) {
+            IsCharScanner scanner = (IsCharScanner) node;
+            if (scanner.name.length() == 1 && scanner.predicate.matches(scanner.name.charAt(0))) {
+                alphabet.add(scanner.name.charAt(0));
+            }
+            for (char c : SAMPLES.toCharArray()) {
+                if (scanner.predicate.matches(c)) addSample(c, alphabet);
+            }
+        } else if (node instanceof PatternScanner) {
+            collect(((PatternScanner) node).name, ((PatternScanner) node).pattern, literals, alphabet);
+        } else if (node instanceof SkipPatternScanner) {
+            collect(((SkipPatternScanner) node).name, ((SkipPatternScanner) node).pattern, literals, alphabet);
+        } else if (node instanceof PatternSequenceScanner) {
+            PatternSequenceScanner scanner = (PatternSequenceScanner) node;
+            for (int i = 0; i < scanner.patterns.length; i++) {
+                collect(scanner.names[i], scanner.patterns[i], literals, alphabet);
+            }
+        }
+    }
+
+    private static void collect(String name, Pattern pattern, Set<String> literals, Set<Character> alphabet) {
+        if (name.length() > 0 && pattern.match(name, 0, name.length()) == name.length()) literals.add(name);
+        for (char c : SAMPLES.toCharArray()) {
+            if (pattern.mayStartWith(c)) addSample(c, alphabet);
+        }
+    }
+
+    /**
+     * Adds {@code c} to {@code alphabet} if it is the first of its kind, so that a predicate such
+     * as a letter or a digit adds one sample character instead of all of them.
+     */
+    private static void addSample(char c, Set<Character> alphabet) {
+        if (alphabet.contains(c)) return;
+        for (char sample : alphabet) {
+            if (kind(sample) == kind(c) && kind(c) != Character.OTHER_PUNCTUATION) return;
+        }
+        alphabet.add(c);
+    }
+
+    private static String sampleCharacters() {
+        StringBuilder builder = new StringBuilder(" \t\n");
+        for (char c = '!'; c <= '~'; c++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private static int kind(char c) {
+        if (Character.isLetter(c)) return Character.LOWERCASE_LETTER;
+        if (Character.isDigit(c)) return Character.DECIMAL_DIGIT_NUMBER;
+        if (Character.isWhitespace(c)) return Character.SPACE_SEPARATOR;
+        return Character.OTHER_PUNCTUATION;
+    }
+
+    /**
+     * Counts the parser runs of the parse going on.
+     */
+    static final class StepCounter {
+        private final long limit;
+        long steps = 0;
+
+        StepCounter(long limit) {
+            this.limit = limit;
+        }
+
+        void step() {
+            if (++steps > limit) throw new StepLimitReached();
+        }
+    }
+
+    private static final class StepLimitReached extends RuntimeException {
+        private static final long serialVersionUID = 6609877442688280459L;
+
+        StepLimitReached() {
+            super("step limit reached");
+        }
+    }
+}
@@ -23,8 +23,8 @@ import com.googlecode.lazyparsec.pattern.Pattern;
  * @author Ben Yu
  */
 final class PatternScanner extends Parser<Void> {
-    private final String name;
-    private final Pattern pattern;
+    final String name;
+    final Pattern pattern;
 
     PatternScanner(String name, Pattern pattern) {
         this.name = name;
@@ -33,9 +33,7 @@ final class PatternScanner extends Parser<Void> {
 
     @Override
     boolean apply(final ParseContext context) {
-        int at = context.at;
-        CharSequence src = context.characters();
-        int matchLength = pattern.match(src, at, src.length());
+        int matchLength = context.match(pattern);
         if (matchLength < 0) {
             context.expected(name);
             return false;
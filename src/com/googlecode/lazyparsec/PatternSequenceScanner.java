@@ -0,0 +1,51 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.pattern.Pattern;
+
+/**
+ * Runs consecutive {@link PatternScanner}s of a sequence in one loop, with the same positions,
+ * steps and errors as running them one after another.
+ */
+final class PatternSequenceScanner extends Parser<Void> {
+    final String[] names;
+    final Pattern[] patterns;
+
+    PatternSequenceScanner(String[] names, Pattern[] patterns) {
+        this.names = names;
+        this.patterns = patterns;
+    }
+
+    @Override
+    boolean apply(ParseContext context) {
+        for (int i = 0; i < patterns.length; i++) {
+            int matchLength = context.match(patterns[i]);
+            if (matchLength < 0) {
+                context.expected(names[i]);
+                return false;
+            }
+            context.next(matchLength);
+        }
+        context.result = null;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "sequence";
+    }
+}
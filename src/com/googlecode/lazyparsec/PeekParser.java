@@ -23,14 +23,27 @@ final class PeekParser<T> extends Parser<T> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         int step = context.step;
         int at = context.at;
-        boolean ok = parser.run(context);
+        context.mark();
+        boolean ok = parser.apply(context);
+        context.unmark();
         if (ok) context.setAt(step, at);
         return ok;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new PeekParser<T>((Parser<T>) children[0]);
+    }
+
     @Override
     public String toString() {
         return "peek";
@@ -0,0 +1,52 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * Records the runs of a {@link Parser} in a {@link ParseProfile}.
+ */
+final class ProfiledParser<T> extends Parser<T> {
+    private final Parser<T> parser;
+    private final ParseProfile profile;
+    private final ParseProfile.Entry entry;
+
+    ProfiledParser(Parser<T> parser, ParseProfile profile, ParseProfile.Entry entry) {
+        this.parser = parser;
+        this.profile = profile;
+        this.entry = entry;
+    }
+
+    @Override
+    boolean apply(ParseContext context) throws Exception {
+        return profile.run(parser, entry, context);
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new ProfiledParser<T>((Parser<T>) children[0], profile, entry);
+    }
+
+    @Override
+    public String toString() {
+        return parser.toString();
+    }
+}
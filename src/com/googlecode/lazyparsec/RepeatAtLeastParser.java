@@ -19,7 +19,7 @@ import java.util.List;
 
 final class RepeatAtLeastParser<T> extends Parser<List<T>> {
     private final Parser<? extends T> parser;
-    private final int min;
+    final int min;
     private final ListFactory<T> listFactory;
 
     RepeatAtLeastParser(Parser<? extends T> parser, int min) {
@@ -33,7 +33,7 @@ final class RepeatAtLeastParser<T> extends Parser<List<T>> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         List<T> result = listFactory.newList();
         if (!ParserInternals.repeat(parser, min, result, context))
             return false;
@@ -44,6 +44,17 @@ final class RepeatAtLeastParser<T> extends Parser<List<T>> {
         return false;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<List<T>> withChildren(Parser<?>[] children) {
+        return new RepeatAtLeastParser<T>((Parser<? extends T>) children[0], min, listFactory);
+    }
+
     @Override
     public String toString() {
         return "atLeast";
@@ -19,7 +19,7 @@ import java.util.List;
 
 final class RepeatTimesParser<T> extends Parser<List<T>> {
     private final Parser<? extends T> parser;
-    private final int min;
+    final int min;
     private final int max;
     private final ListFactory<T> listFactory;
 
@@ -36,7 +36,7 @@ final class RepeatTimesParser<T> extends Parser<List<T>> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         List<T> result = listFactory.newList();
         if (!ParserInternals.repeat(parser, min, result, context))
             return false;
@@ -47,6 +47,17 @@ final class RepeatTimesParser<T> extends Parser<List<T>> {
         return false;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<List<T>> withChildren(Parser<?>[] children) {
+        return new RepeatTimesParser<T>((Parser<? extends T>) children[0], min, max, listFactory);
+    }
+
     @Override
     public String toString() {
         return "times";
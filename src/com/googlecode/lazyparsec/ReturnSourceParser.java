@@ -30,13 +30,26 @@ final class ReturnSourceParser extends Parser<String> {
     @Override
     boolean apply(ParseContext context) throws Exception {
         int begin = context.getIndex();
-        if (!parser.apply(context)) {
+        context.mark();
+        boolean ok = parser.apply(context);
+        context.unmark();
+        if (!ok) {
             return false;
         }
         context.result = context.source.subSequence(begin, context.getIndex()).toString();
         return true;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    Parser<String> withChildren(Parser<?>[] children) {
+        return new ReturnSourceParser(children[0]);
+    }
+
     @Override
     public String toString() {
         return "source";
@@ -0,0 +1,153 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import java.util.Arrays;
+
+/**
+ * The rules currently running in packrat mode, innermost last, used to detect left recursion.
+ * <p/>
+ * <p> A rule that finds itself already running at the same position is left recursive. Instead of
+ * recursing forever, the inner invocation answers with the seed held by the outer one: a failure at
+ * first, then the longest match found so far while the outer invocation grows the seed by running
+ * the rule again until the match stops getting longer.
+ * <p/>
+ * <p> Since a rule can only run at or after the position its caller runs at, the rules running at
+ * the current position are always at the top of the stack.
+ * <p/>
+ * <p> It is <EM>not</EM> multi-thread safe.
+ */
+final class RuleStack {
+
+    private int size = 0;
+    private int[] ids = new int[16];
+    private int[] positions = new int[16];
+    private boolean[] leftRecursive = new boolean[16];
+    private boolean[] seedSuccesses = new boolean[16];
+    private int[] seedEnds = new int[16];
+    private int[] seedSteps = new int[16];
+    private Object[] seedResults = new Object[16];
+
+    /**
+     * Pushes rule {@code id} running at {@code at}, with a failed seed. Returns its index.
+     */
+    int push(int id, int at) {
+        if (size == ids.length) grow();
+        ids[size] = id;
+        positions[size] = at;
+        leftRecursive[size] = false;
+        seedSuccesses[size] = false;
+        seedEnds[size] = at;
+        seedSteps[size] = 0;
+        seedResults[size] = null;
+        return size++;
+    }
+
+    /**
+     * Removes all rules, as left over by a parse aborted by an exception.
+     */
+    void clear() {
+        Arrays.fill(seedResults, 0, size, null);
+        size = 0;
+    }
+
+    void pop() {
+        seedResults[--size] = null;
+    }
+
+    /**
+     * Returns the index of rule {@code id} if it is already running at {@code at}, or {@code -1}.
+     */
+    int find(int id, int at) {
+        for (int i = size - 1; i >= 0 && positions[i] == at; i--) {
+            if (ids[i] == id) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Whether any of the rules below {@code index} is growing a left recursive seed at {@code at}.
+     * The outcome of a parser that ran at {@code at} may then depend on a seed that is yet to grow,
+     * and must not be memoized.
+     */
+    boolean isGrowingAt(int at, int index) {
+        for (int i = Math.min(index, size) - 1; i >= 0 && positions[i] == at; i--) {
+            if (leftRecursive[i]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether any running rule is growing a left recursive seed at {@code at}.
+     */
+    boolean isGrowingAt(int at) {
+        return isGrowingAt(at, size);
+    }
+
+    void setLeftRecursive(int index) {
+        leftRecursive[index] = true;
+    }
+
+    boolean isLeftRecursive(int index) {
+        return leftRecursive[index];
+    }
+
+    void setSeed(int index, boolean success, int end, int steps, Object result) {
+        seedSuccesses[index] = success;
+        seedEnds[index] = end;
+        seedSteps[index] = steps;
+        seedResults[index] = result;
+    }
+
+    boolean seedSucceeded(int index) {
+        return seedSuccesses[index];
+    }
+
+    int seedEnd(int index) {
+        return seedEnds[index];
+    }
+
+    int seedSteps(int index) {
+        return seedSteps[index];
+    }
+
+    Object seedResult(int index) {
+        return seedResults[index];
+    }
+
+    private void grow() {
+        int capacity = size * 2;
+        ids = copyOf(ids, capacity);
+        positions = copyOf(positions, capacity);
+        seedEnds = copyOf(seedEnds, capacity);
+        seedSteps = copyOf(seedSteps, capacity);
+        boolean[] newLeftRecursive = new boolean[capacity];
+        System.arraycopy(leftRecursive, 0, newLeftRecursive, 0, size);
+        leftRecursive = newLeftRecursive;
+        boolean[] newSeedSuccesses = new boolean[capacity];
+        System.arraycopy(seedSuccesses, 0, newSeedSuccesses, 0, size);
+        seedSuccesses = newSeedSuccesses;
+        Object[] newSeedResults = new Object[capacity];
+        System.arraycopy(seedResults, 0, newSeedResults, 0, size);
+        seedResults = newSeedResults;
+    }
+
+    private int[] copyOf(int[] array, int capacity) {
+        int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, size);
+        return copy;
+    }
+}
@@ -15,6 +15,7 @@
  *****************************************************************************/
 package com.googlecode.lazyparsec;
 
+import com.googlecode.lazyparsec.pattern.Pattern;
 
 /**
  * Parser state for scanner.
@@ -22,11 +23,16 @@ package com.googlecode.lazyparsec;
  * @author Ben Yu
  */
 final class ScannerState extends ParseContext {
-    private final int end;
+    private int end;
+
+    // the source being read as it is parsed, or null.
+    private StreamingSource stream;
 
     ScannerState(String module, CharSequence source, int from, SourceLocator locator) {
         super(source, from, module, locator);
         this.end = source.length();
+        this.stream = source instanceof StreamingSource ? (StreamingSource) source : null;
+        if (stream != null) stream.readBy(this);
     }
 
     /**
@@ -43,6 +49,16 @@ final class ScannerState extends ParseContext {
         this.end = end;
     }
 
+    /**
+     * Resets this state to scan {@code source} from the beginning.
+     */
+    void reset(String module, CharSequence source, SourceLocator locator) {
+        reset(module, source, locator, 0, null);
+        this.end = source.length();
+        this.stream = source instanceof StreamingSource ? (StreamingSource) source : null;
+        if (stream != null) stream.readBy(this);
+    }
+
     @Override
     char peekChar() {
         return source.charAt(at);
@@ -50,6 +66,7 @@ final class ScannerState extends ParseContext {
 
     @Override
     boolean isEof() {
+        if (end == at && stream != null) end = stream.lookahead(at);
         return end == at;
     }
 
@@ -66,11 +83,33 @@ final class ScannerState extends ParseContext {
 
     @Override
     CharSequence characters() {
+        if (stream != null) end = stream.lookahead(at);
         return source;
     }
 
+    @Override
+    int match(Pattern pattern) {
+        if (stream == null) return super.match(pattern);
+        // a match that reads up to the last character read may go on, so it is tried again on more.
+        int lookahead = StreamingSource.LOOKAHEAD;
+        while (true) {
+            end = stream.lookahead(at, lookahead);
+            stream.resetFurthest();
+            int matchLength = pattern.match(source, at, end);
+            if (stream.ended() || stream.furthest() < end - 1 || end == Integer.MAX_VALUE) {
+                return matchLength;
+            }
+            lookahead = (int) Math.min(lookahead * 2L, Integer.MAX_VALUE);
+        }
+    }
+
     @Override
     Token getToken() {
         throw new IllegalStateException("Parser not on token level");
     }
+
+    @Override
+    Object getTokenValue() {
+        throw new IllegalStateException("Parser not on token level");
+    }
 }
@@ -30,16 +30,34 @@ final class Sequence2Parser<A, B, T> extends Parser<T> {
 
     @Override
     boolean apply(ParseContext context) throws Exception {
-        boolean r1 = p1.run(context);
+        boolean r1 = p1.apply(context);
         if (!r1) return false;
         A o1 = p1.getReturn(context);
-        boolean r2 = p2.run(context);
+        boolean r2 = p2.apply(context);
         if (!r2) return false;
         B o2 = p2.getReturn(context);
         context.result = m2.call(o1, o2);
         return true;
     }
 
+    /**
+     * Whether the result is that of the last parser, as for {@link Parsers#sequence(Parser, Parser)}.
+     */
+    boolean returnsLast() {
+        return m2 == InternalFunctors.lastOfTwo();
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{p1, p2};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new Sequence2Parser<A, B, T>((Parser<A>) children[0], (Parser<B>) children[1], m2);
+    }
+
     @Override
     public String toString() {
         return m2.toString();
@@ -33,19 +33,38 @@ final class Sequence3Parser<A, B, C, T> extends Parser<T> {
 
     @Override
     boolean apply(ParseContext context) throws Exception {
-        boolean r1 = p1.run(context);
+        boolean r1 = p1.apply(context);
         if (!r1) return false;
         A o1 = p1.getReturn(context);
-        boolean r2 = p2.run(context);
+        boolean r2 = p2.apply(context);
         if (!r2) return false;
         B o2 = p2.getReturn(context);
-        boolean r3 = p3.run(context);
+        boolean r3 = p3.apply(context);
         if (!r3) return false;
         C o3 = p3.getReturn(context);
         context.result = m3.call(o1, o2, o3);
         return true;
     }
 
+    /**
+     * Whether the result is that of the last parser, as for {@link Parsers#sequence(Parser, Parser)}.
+     */
+    boolean returnsLast() {
+        return m3 == InternalFunctors.lastOfThree();
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{p1, p2, p3};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new Sequence3Parser<A, B, C, T>(
+                (Parser<A>) children[0], (Parser<B>) children[1], (Parser<C>) children[2], m3);
+    }
+
     @Override
     public String toString() {
         return m3.toString();
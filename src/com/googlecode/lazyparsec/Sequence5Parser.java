@@ -37,25 +37,44 @@ final class Sequence5Parser<A, B, C, D, E, T> extends Parser<T> {
 
     @Override
     boolean apply(ParseContext context) throws Exception {
-        boolean r1 = p1.run(context);
+        boolean r1 = p1.apply(context);
         if (!r1) return false;
         A o1 = p1.getReturn(context);
-        boolean r2 = p2.run(context);
+        boolean r2 = p2.apply(context);
         if (!r2) return false;
         B o2 = p2.getReturn(context);
-        boolean r3 = p3.run(context);
+        boolean r3 = p3.apply(context);
         if (!r3) return false;
         C o3 = p3.getReturn(context);
-        boolean r4 = p4.run(context);
+        boolean r4 = p4.apply(context);
         if (!r4) return false;
         D o4 = p4.getReturn(context);
-        boolean r5 = p5.run(context);
+        boolean r5 = p5.apply(context);
         if (!r5) return false;
         E o5 = p5.getReturn(context);
         context.result = m5.call(o1, o2, o3, o4, o5);
         return true;
     }
 
+    /**
+     * Whether the result is that of the last parser, as for {@link Parsers#sequence(Parser, Parser)}.
+     */
+    boolean returnsLast() {
+        return m5 == InternalFunctors.lastOfFive();
+    }
+
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{p1, p2, p3, p4, p5};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new Sequence5Parser<A, B, C, D, E, T>((Parser<A>) children[0], (Parser<B>) children[1],
+                (Parser<C>) children[2], (Parser<D>) children[3], (Parser<E>) children[4], m5);
+    }
+
     @Override
     public String toString() {
         return m5.toString();
@@ -16,20 +16,30 @@
 package com.googlecode.lazyparsec;
 
 final class SequenceParser extends Parser<Object> {
-    private final Parser<?>[] parsers;
+    final Parser<?>[] parsers;
 
     SequenceParser(Parser<?>[] parsers) {
         this.parsers = parsers;
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         for (Parser<?> p : parsers) {
-            if (!p.run(context)) return false;
+            if (!p.apply(context)) return false;
         }
         return true;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return parsers;
+    }
+
+    @Override
+    Parser<Object> withChildren(Parser<?>[] children) {
+        return new SequenceParser(children);
+    }
+
     @Override
     public String toString() {
         return "sequence";
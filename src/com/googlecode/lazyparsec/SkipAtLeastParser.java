@@ -16,8 +16,8 @@
 package com.googlecode.lazyparsec;
 
 final class SkipAtLeastParser extends Parser<Void> {
-    private final Parser<?> parser;
-    private final int min;
+    final Parser<?> parser;
+    final int min;
 
     SkipAtLeastParser(Parser<?> parser, int min) {
         this.parser = parser;
@@ -25,7 +25,7 @@ final class SkipAtLeastParser extends Parser<Void> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         if (!ParserInternals.repeat(parser, min, context)) return false;
         if (ParserInternals.many(parser, context)) {
             context.result = null;
@@ -34,6 +34,16 @@ final class SkipAtLeastParser extends Parser<Void> {
         return false;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    Parser<Void> withChildren(Parser<?>[] children) {
+        return new SkipAtLeastParser(children[0], min);
+    }
+
     @Override
     public String toString() {
         return "skipAtLeast";
@@ -0,0 +1,55 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.pattern.Pattern;
+
+/**
+ * Skips a {@link PatternScanner} at least {@code min} times in one loop, with the same positions,
+ * steps and errors as {@link SkipAtLeastParser}.
+ */
+final class SkipPatternScanner extends Parser<Void> {
+    final String name;
+    final Pattern pattern;
+    final int min;
+
+    SkipPatternScanner(String name, Pattern pattern, int min) {
+        this.name = name;
+        this.pattern = pattern;
+        this.min = min;
+    }
+
+    @Override
+    boolean apply(ParseContext context) {
+        for (int i = 0; ; i++) {
+            int matchLength = context.match(pattern);
+            if (matchLength < 0) {
+                context.expected(name);
+                if (i < min) return false;
+                break;
+            }
+            context.next(matchLength);
+            if (i >= min && matchLength == 0) break;
+        }
+        context.result = null;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "skipAtLeast";
+    }
+}
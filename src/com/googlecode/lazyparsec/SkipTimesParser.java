@@ -17,7 +17,7 @@ package com.googlecode.lazyparsec;
 
 final class SkipTimesParser extends Parser<Void> {
     private final Parser<?> parser;
-    private final int min;
+    final int min;
     private final int max;
 
     SkipTimesParser(Parser<?> parser, int min, int max) {
@@ -27,7 +27,7 @@ final class SkipTimesParser extends Parser<Void> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         if (!ParserInternals.repeat(parser, min, context)) return false;
         if (ParserInternals.repeatAtMost(parser, max - min, context)) {
             context.result = null;
@@ -36,6 +36,16 @@ final class SkipTimesParser extends Parser<Void> {
         return false;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    Parser<Void> withChildren(Parser<?>[] children) {
+        return new SkipTimesParser(children[0], min, max);
+    }
+
     @Override
     public String toString() {
         return "skipTimes";
@@ -26,13 +26,24 @@ final class StepParser<T> extends Parser<T> {
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         int step = context.step;
-        if (!parser.run(context)) return false;
+        if (!parser.apply(context)) return false;
         context.step = step + n;
         return true;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        return new StepParser<T>((Parser<T>) children[0], n);
+    }
+
     @Override
     public String toString() {
         return parser.toString();
@@ -0,0 +1,211 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.Location;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * The source read from a {@link Readable} as it is parsed, keeping in memory only the characters
+ * from the oldest position its reader may still go back to, see {@link ParseContext#backtrackPoint()}.
+ * <p/>
+ * <p> Its {@link #length()} is the number of characters read so far. {@link ScannerState} reads
+ * {@link #LOOKAHEAD} characters past the current position before each scan, and matches a
+ * {@link com.googlecode.lazyparsec.pattern.Pattern} again over twice as many characters as long
+ * as it reads up to the last one read, so how far ahead a scan reads is not limited. Characters
+ * released can no longer be read, nor be located in the source.
+ */
+final class StreamingSource implements CharSequence, SourceLocator {
+
+    /**
+     * The number of characters first read ahead of the current position.
+     */
+    static final int LOOKAHEAD = 1 << 16;
+
+    private static final int CHUNK = 8192;
+
+    /**
+     * Thrown, unchecked, when reading the source fails.
+     */
+    static final class ReadFailure extends RuntimeException {
+        private static final long serialVersionUID = 2896329445671555126L;
+
+        ReadFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private final Readable readable;
+    private char[] window = new char[CHUNK * 2];
+
+    // the index of window[0] in the source.
+    private int start = 0;
+    // the index after the last character read.
+    private int end = 0;
+    private boolean eof = false;
+
+    // the context parsing this source, which the characters before its backtrack point are
+    // released for, or null to keep them all.
+    private ParseContext reader = null;
+
+    // the highest index read since the last call to resetFurthest(), or -1.
+    private int furthest = -1;
+
+    // the location of the character at start.
+    private int line = 1;
+    private int column = 1;
+
+    StreamingSource(Readable readable) {
+        this.readable = readable;
+    }
+
+    /**
+     * Reads the source until {@link #LOOKAHEAD} characters past {@code index} or the end of it.
+     *
+     * @return the number of characters read so far.
+     */
+    int lookahead(int index) {
+        return lookahead(index, LOOKAHEAD);
+    }
+
+    /**
+     * Reads the source until {@code count} characters past {@code index} or the end of it.
+     *
+     * @return the number of characters read so far.
+     */
+    int lookahead(int index, int count) {
+        int target = (int) Math.min((long) index + count, Integer.MAX_VALUE);
+        while (!eof && end < target) {
+            read();
+        }
+        return end;
+    }
+
+    /**
+     * Whether the whole source has been read.
+     */
+    boolean ended() {
+        return eof;
+    }
+
+    /**
+     * The highest index read through {@link #charAt(int)} or {@link #subSequence(int, int)} since
+     * the last {@link #resetFurthest()}, or -1.
+     */
+    int furthest() {
+        return furthest;
+    }
+
+    void resetFurthest() {
+        furthest = -1;
+    }
+
+    /**
+     * Sets the context parsing this source, from whose {@link ParseContext#backtrackPoint()} on the
+     * characters are kept.
+     */
+    void readBy(ParseContext context) {
+        this.reader = context;
+    }
+
+    public int length() {
+        return end;
+    }
+
+    public char charAt(int index) {
+        if (index >= end) lookahead(index, 1);
+        if (index < start || index >= end) throw outOfWindow(index);
+        if (index > furthest) furthest = index;
+        return window[index - start];
+    }
+
+    public CharSequence subSequence(int from, int to) {
+        if (to > end) lookahead(to, 0);
+        if (from < start) throw outOfWindow(from);
+        if (to > end || from > to) throw outOfWindow(to);
+        if (to - 1 > furthest) furthest = to - 1;
+        return new String(window, from - start, to - from);
+    }
+
+    /**
+     * Locates {@code index}, which must not have been released.
+     */
+    public Location locate(int index) {
+        int l = line;
+        int c = column;
+        int until = Math.min(index, end);
+        for (int i = start; i < until; i++) {
+            if (window[i - start] == '\n') {
+                l++;
+                c = 1;
+            } else c++;
+        }
+        return new Location(l, c);
+    }
+
+    /**
+     * Returns the characters still in memory.
+     */
+    @Override
+    public String toString() {
+        return new String(window, 0, end - start);
+    }
+
+    private void read() {
+        if (window.length - (end - start) < CHUNK) makeRoom();
+        try {
+            int r = readable.read(CharBuffer.wrap(window, end - start, window.length - (end - start)));
+            if (r < 0) eof = true;
+            else end += r;
+        } catch (IOException e) {
+            throw new ReadFailure(e);
+        }
+    }
+
+    private void makeRoom() {
+        int kept = reader == null ? start : Math.min(reader.backtrackPoint(), end);
+        int dropped = kept - start;
+        // only moves the characters kept when that frees at least half as much room as they take.
+        if (dropped > 0 && dropped * 2 >= end - kept) {
+            Location location = locate(kept);
+            line = location.line;
+            column = location.column;
+            System.arraycopy(window, dropped, window, 0, end - kept);
+            start = kept;
+        }
+        int size = end - start;
+        if (window.length - size < CHUNK) {
+            char[] grown = new char[Math.max(window.length * 2, size + CHUNK)];
+            System.arraycopy(window, 0, grown, 0, size);
+            window = grown;
+        }
+    }
+
+    private IndexOutOfBoundsException outOfWindow(int index) {
+        if (index < start) {
+            return new IndexOutOfBoundsException(
+                    "Character at " + index + " was released, the parser can not go back before " + start);
+        }
+        return new IndexOutOfBoundsException("Character at " + index + " is not read, length is " + end);
+    }
+}
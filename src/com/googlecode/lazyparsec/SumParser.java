@@ -16,27 +16,62 @@
 package com.googlecode.lazyparsec;
 
 final class SumParser<T> extends Parser<T> {
-    private final Parser<? extends T>[] alternatives;
+    final Parser<? extends T>[] alternatives;
+    final Dispatch dispatch;
+    private final int[] all;
 
     SumParser(Parser<? extends T>... alternatives) {
+        this(alternatives, null);
+    }
+
+    SumParser(Parser<? extends T>[] alternatives, Dispatch dispatch) {
         this.alternatives = alternatives;
+        this.dispatch = dispatch;
+        this.all = Dispatch.inOrder(alternatives.length);
     }
 
     @Override
-    boolean apply(ParseContext context) {
+    boolean apply(ParseContext context) throws Exception {
         Object result = context.result;
         int at = context.at;
         int step = context.step;
-        for (Parser<? extends T> p : alternatives) {
-            if (p.run(context)) {
+        boolean cut = context.cut;
+        int choice = context.choice;
+        context.cut = false;
+        context.choice = context.mark();
+        for (int i : dispatch == null ? all : dispatch.order(context)) {
+            if (i < 0) {
+                dispatch.skip(context, i);
+                continue;
+            }
+            if (alternatives[i].apply(context)) {
+                context.cut = cut;
+                context.choice = choice;
+                context.unmark();
                 return true;
             }
-            if (context.at != at && context.step - step >= 1) return false;
+            if (context.cut || context.at != at && context.step - step >= 1) break;
+            if (context.monitor != null) context.monitor.rewinding(context, at);
             context.set(step, at, result);
         }
+        context.cut = cut;
+        context.choice = choice;
+        context.unmark();
         return false;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return alternatives;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Parser<T> withChildren(Parser<?>[] children) {
+        Parser<? extends T>[] alternatives = (Parser<? extends T>[]) children;
+        return new SumParser<T>(alternatives, dispatch == null ? null : Dispatch.of(alternatives));
+    }
+
     @Override
     public String toString() {
         return "plus";
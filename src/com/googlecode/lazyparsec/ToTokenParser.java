@@ -19,11 +19,22 @@ final class ToTokenParser extends Parser<Token> {
             return false;
         }
         int len = context.getIndex() - begin;
+        context.indexed = true;
         Token token = new Token(begin, len, context.result);
         context.result = token;
         return true;
     }
 
+    @Override
+    Parser<?>[] children() {
+        return new Parser<?>[]{parser};
+    }
+
+    @Override
+    Parser<Token> withChildren(Parser<?>[] children) {
+        return new ToTokenParser(children[0]);
+    }
+
     @Override
     public String toString() {
         return parser.toString();
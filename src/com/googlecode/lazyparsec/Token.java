@@ -28,15 +28,23 @@ public final class Token {
     private final int len;
     private final Object value;
 
+    // moves the token along with its position in an incrementally parsed source, or null.
+    private final TokenBuffer.Anchor anchor;
+
     /**
      * @param index  the starting index.
      * @param length the length of the token.
      * @param value  the token value.
      */
     public Token(int index, int length, Object value) {
+        this(index, length, value, null);
+    }
+
+    Token(int index, int length, Object value, TokenBuffer.Anchor anchor) {
         this.ind = index;
         this.len = length;
         this.value = value;
+        this.anchor = anchor;
     }
 
     /**
@@ -47,10 +55,13 @@ public final class Token {
     }
 
     /**
-     * Returns the index of the token in the orginal source.
+     * Returns the index of the token in the orginal source, or for a token parsed by an
+     * {@link IncrementalParser}, in the source as edited since.
      */
     public int index() {
-        return ind;
+        if (anchor == null) return ind;
+        anchor.watch.read();
+        return ind + anchor.shift;
     }
 
     /**
@@ -70,7 +81,7 @@ public final class Token {
 
     @Override
     public int hashCode() {
-        return (ind * 31 + len) * 31 + Objects.hashCode(value);
+        return (index() * 31 + len) * 31 + Objects.hashCode(value);
     }
 
     @Override
@@ -82,6 +93,6 @@ public final class Token {
     }
 
     private boolean equalToken(Token that) {
-        return ind == that.ind && len == that.len && Objects.equals(value, that.value);
+        return index() == that.index() && len == that.len && Objects.equals(value, that.value);
     }
 }
@@ -0,0 +1,203 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * The tokens fed to a token level parser, kept in parallel arrays so that a {@link Token} is only
+ * created for the tokens that a parser returns.
+ */
+final class TokenBuffer {
+
+    /**
+     * Tells the parse running on an incrementally parsed source, if any, that the index of one of
+     * its tokens is read.
+     */
+    static final class Watch {
+        ParseContext context = null;
+
+        void read() {
+            if (context != null) context.indexed = true;
+        }
+    }
+
+    /**
+     * Moves the {@link Token tokens} created for a position of a watched buffer along with that
+     * position when an edit before it changes the source length.
+     */
+    static final class Anchor {
+        final Watch watch;
+        int shift = 0;
+
+        Anchor(Watch watch) {
+            this.watch = watch;
+        }
+    }
+
+    private int[] indices;
+    private int[] lengths;
+    private Object[] values;
+    private int size = 0;
+
+    // the anchors of the tokens created so far, and what they tell, or null if not watched.
+    private Anchor[] anchors = null;
+    private Watch watch = null;
+
+    TokenBuffer(int capacity) {
+        this.indices = new int[capacity];
+        this.lengths = new int[capacity];
+        this.values = new Object[capacity];
+    }
+
+    static TokenBuffer of(Collection<Token> tokens) {
+        TokenBuffer buffer = new TokenBuffer(tokens.size());
+        for (Token token : tokens) {
+            buffer.add(token.index(), token.length(), token.value());
+        }
+        return buffer;
+    }
+
+    /**
+     * Creates the tokens of this buffer anchored, so that they move with it, and tells
+     * {@code watch} when their index is read.
+     */
+    void watch(Watch watch) {
+        this.watch = watch;
+        this.anchors = new Anchor[values.length];
+    }
+
+    void add(int index, int length, Object value) {
+        if (size == values.length) grow();
+        indices[size] = index;
+        lengths[size] = length;
+        values[size] = value;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the index in the source of the token at {@code i}.
+     */
+    int index(int i) {
+        return indices[i];
+    }
+
+    int length(int i) {
+        return lengths[i];
+    }
+
+    Object value(int i) {
+        return values[i];
+    }
+
+    /**
+     * Creates the {@link Token} at {@code i}.
+     */
+    Token token(int i) {
+        if (watch == null) return new Token(indices[i], lengths[i], values[i]);
+        Anchor anchor = anchors[i];
+        if (anchor == null) anchor = anchors[i] = new Anchor(watch);
+        return new Token(indices[i] - anchor.shift, lengths[i], values[i], anchor);
+    }
+
+    /**
+     * Returns the position of the token starting at {@code index} in the source, or {@code -1} if
+     * none does.
+     */
+    int find(int index) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indices[mid] < index) low = mid + 1;
+            else high = mid - 1;
+        }
+        return low < size && indices[low] == index ? low : -1;
+    }
+
+    /**
+     * Returns the position of the first token ending at or after {@code index} in the source, or
+     * {@link #size()} if none does.
+     */
+    int firstEndingFrom(int index) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indices[mid] + lengths[mid] < index) low = mid + 1;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Returns a buffer of these tokens with the ones between {@code from} and {@code to} replaced by
+     * {@code replacement}, and the source index of the ones after moved by {@code shift}, along with
+     * the tokens created for them if watched.
+     */
+    TokenBuffer splice(int from, int to, TokenBuffer replacement, int shift) {
+        TokenBuffer spliced = new TokenBuffer(from + replacement.size + size - to);
+        if (watch != null) spliced.watch(watch);
+        System.arraycopy(indices, 0, spliced.indices, 0, from);
+        System.arraycopy(lengths, 0, spliced.lengths, 0, from);
+        System.arraycopy(values, 0, spliced.values, 0, from);
+        if (watch != null) System.arraycopy(anchors, 0, spliced.anchors, 0, from);
+        spliced.size = from;
+        for (int i = 0; i < replacement.size; i++) {
+            spliced.add(replacement.indices[i], replacement.lengths[i], replacement.values[i]);
+        }
+        for (int i = to; i < size; i++) {
+            spliced.add(indices[i] + shift, lengths[i], values[i]);
+            if (watch != null && anchors[i] != null) {
+                anchors[i].shift += shift;
+                spliced.anchors[spliced.size - 1] = anchors[i];
+            }
+        }
+        return spliced;
+    }
+
+    /**
+     * Removes all the tokens, keeping the capacity.
+     */
+    void clear() {
+        Arrays.fill(values, 0, size, null);
+        if (anchors != null) Arrays.fill(anchors, 0, size, null);
+        size = 0;
+    }
+
+    private void grow() {
+        int capacity = values.length + (values.length >> 1) + 8;
+        int[] newIndices = new int[capacity];
+        int[] newLengths = new int[capacity];
+        Object[] newValues = new Object[capacity];
+        System.arraycopy(indices, 0, newIndices, 0, size);
+        System.arraycopy(lengths, 0, newLengths, 0, size);
+        System.arraycopy(values, 0, newValues, 0, size);
+        indices = newIndices;
+        lengths = newLengths;
+        values = newValues;
+        if (anchors != null) {
+            Anchor[] newAnchors = new Anchor[capacity];
+            System.arraycopy(anchors, 0, newAnchors, 0, size);
+            anchors = newAnchors;
+        }
+    }
+}
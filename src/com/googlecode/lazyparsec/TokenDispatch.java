@@ -0,0 +1,87 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Looks up the alternatives that may succeed on the current token by its value, for alternatives
+ * that recognize tokens with a known value such as those of {@link Lexicon#token(String...)}.
+ * Alternatives recognizing unknown tokens always run, as do all alternatives at EOF and on
+ * character level.
+ */
+final class TokenDispatch extends Dispatch {
+    private final IdentityHashMap<Object, int[]> orders;
+    private final int[] others;
+
+    private TokenDispatch(Object[][] expected, IdentityHashMap<Object, int[]> orders, int[] others) {
+        super(expected);
+        this.orders = orders;
+        this.others = others;
+    }
+
+    /**
+     * Returns the lookup table for {@code alternatives}, or {@code null} if no alternative can be
+     * skipped by looking at the current token.
+     */
+    static TokenDispatch of(Parser<?>[] alternatives) {
+        Object[][] expected = new Object[alternatives.length][];
+        FirstTokens[] firsts = new FirstTokens[alternatives.length];
+        IdentityHashMap<Object, int[]> orders = new IdentityHashMap<Object, int[]>();
+        boolean skips = false;
+        for (int i = 0; i < alternatives.length; i++) {
+            firsts[i] = new FirstTokens();
+            expected[i] = expected(alternatives[i], firsts[i]);
+            skips |= expected[i] != null;
+            for (Object value : firsts[i].values.keySet()) {
+                orders.put(value, null);
+            }
+        }
+        if (!skips) return null;
+        for (Map.Entry<Object, int[]> entry : orders.entrySet()) {
+            entry.setValue(order(expected, runs(firsts, entry.getKey())));
+        }
+        return new TokenDispatch(expected, orders, order(expected, runs(firsts, new Object())));
+    }
+
+    @Override
+    int[] order(ParseContext context) {
+        if (!(context instanceof ParserState) || context.isEof()) return all;
+        int[] order = orders.get(context.getTokenValue());
+        return order == null ? others : order;
+    }
+
+    private static boolean[] runs(FirstTokens[] firsts, Object value) {
+        boolean[] runs = new boolean[firsts.length];
+        for (int i = 0; i < firsts.length; i++) {
+            runs[i] = firsts[i].values.containsKey(value);
+        }
+        return runs;
+    }
+
+    private static final class FirstTokens implements First {
+        final IdentityHashMap<Object, Object> values = new IdentityHashMap<Object, Object>();
+
+        public Object[] expected(Parser<?> leaf) {
+            if (!(leaf instanceof IsTokenParser)) return null;
+            TokenMap<?> fromToken = ((IsTokenParser<?>) leaf).fromToken;
+            if (!(fromToken instanceof InternalFunctors.TokenWithSameValue)) return null;
+            values.put(((InternalFunctors.TokenWithSameValue) fromToken).value, fromToken);
+            return new Object[]{fromToken};
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+/**
+ * A {@link TokenMap} that only looks at the token value, so that the {@link Token} need not be
+ * created to map it.
+ */
+abstract class TokenValueMap<T> implements TokenMap<T> {
+
+    public final T map(Token token) {
+        return mapValue(token.value());
+    }
+
+    /**
+     * Transforms the token value {@code value} to an instance of {@code T}, or returns {@code null}
+     * if the token isn't recognized.
+     */
+    abstract T mapValue(Object value);
+}
@@ -0,0 +1,202 @@
+/*****************************************************************************
+ * Copyright (C) Codehaus.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package com.googlecode.lazyparsec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The bytes of a {@link ByteBuffer} decoded as UTF-8 characters one at a time, as they are read.
+ * <p/>
+ * <p> The byte offset of every {@link #STRIDE}th character is indexed up front, in one pass that
+ * also counts the characters. A character is then decoded from the closest indexed one before it,
+ * or from the one read last, so that reading the characters in order decodes each just once. A
+ * character shortly before the one read last is found by stepping back over continuation bytes.
+ * Malformed bytes are read as the UTF-8 {@link java.nio.charset.Charset} of the JDK reads them: as
+ * one {@code U+FFFD} per malformed sequence.
+ */
+final class Utf8Source implements CharSequence {
+    static final int STRIDE = 1024;
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final ByteBuffer bytes;
+    private final int end;
+    private final int length;
+
+    // the character index and byte offset of the first character at or after each stride.
+    private final int[] indexedChars;
+    private final int[] indexedBytes;
+    private final int strides;
+
+    // the character index and byte offset of the code point read last.
+    private int cursorChar = 0;
+    private int cursorByte;
+
+    /**
+     * Reads the bytes between the position and the limit of {@code bytes}, which are not changed.
+     */
+    Utf8Source(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.end = bytes.limit();
+        int strides = 0;
+        int[] chars = new int[16];
+        int[] offsets = new int[16];
+        int count = 0;
+        for (int i = bytes.position(); i < end; ) {
+            if (count >= strides * STRIDE) {
+                if (strides == chars.length) {
+                    chars = grow(chars);
+                    offsets = grow(offsets);
+                }
+                chars[strides] = count;
+                offsets[strides] = i;
+                strides++;
+            }
+            int width = width(i);
+            count += width == 4 ? 2 : 1;
+            i += Math.abs(width);
+        }
+        this.length = count;
+        this.strides = strides;
+        this.indexedChars = chars;
+        this.indexedBytes = offsets;
+        this.cursorByte = bytes.position();
+    }
+
+    /**
+     * Whether the bytes between the position and the limit of {@code bytes} are all ASCII, which
+     * read the same as UTF-8 and as ISO-8859-1.
+     */
+    static boolean isAscii(ByteBuffer bytes) {
+        for (int i = bytes.position(); i < bytes.limit(); i++) {
+            if (bytes.get(i) < 0) return false;
+        }
+        return true;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= length) throw new IndexOutOfBoundsException(Integer.toString(index));
+        if (index < cursorChar || index - cursorChar >= STRIDE) {
+            int stride = Math.min(index / STRIDE, strides - 1);
+            while (indexedChars[stride] > index) stride--;
+            if (index < cursorChar && cursorChar - index < index - indexedChars[stride]) {
+                while (cursorChar > index) {
+                    cursorByte = previous(cursorByte);
+                    cursorChar -= width(cursorByte) == 4 ? 2 : 1;
+                }
+            } else {
+                cursorChar = indexedChars[stride];
+                cursorByte = indexedBytes[stride];
+            }
+        }
+        for (; ; ) {
+            int width = width(cursorByte);
+            if (width == 4) {
+                if (index - cursorChar < 2) {
+                    int codePoint = decode(cursorByte, 4);
+                    return index == cursorChar
+                            ? (char) ((codePoint >>> 10) + (Character.MIN_HIGH_SURROGATE - (0x10000 >>> 10)))
+                            : (char) ((codePoint & 0x3FF) + Character.MIN_LOW_SURROGATE);
+                }
+                cursorChar += 2;
+            } else {
+                if (index == cursorChar) return width < 0 ? REPLACEMENT : (char) decode(cursorByte, width);
+                cursorChar++;
+            }
+            cursorByte += Math.abs(width);
+        }
+    }
+
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException(from + " to " + to + " of " + length);
+        }
+        StringBuilder builder = new StringBuilder(to - from);
+        for (int i = from; i < to; i++) {
+            builder.append(charAt(i));
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+
+    /**
+     * Returns the number of bytes of the well-formed UTF-8 sequence at {@code offset}, or minus the
+     * number of bytes of the malformed one.
+     */
+    private int width(int offset) {
+        int lead = bytes.get(offset) & 0xFF;
+        if (lead < 0x80) return 1;
+        int width;
+        // the range of the second byte, which rules out overlong forms and code points past U+10FFFF.
+        int min = 0x80;
+        int max = 0xBF;
+        if (lead >= 0xC2 && lead <= 0xDF) width = 2;
+        else if (lead >= 0xE0 && lead <= 0xEF) {
+            width = 3;
+            if (lead == 0xE0) min = 0xA0;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            width = 4;
+            if (lead == 0xF0) min = 0x90;
+            if (lead == 0xF4) max = 0x8F;
+        } else return -1;
+        for (int i = 1; i < width; i++) {
+            if (offset + i >= end) return -i;
+            int b = bytes.get(offset + i) & 0xFF;
+            if (i == 1 ? b < min || b > max : (b & 0xC0) != 0x80) return -i;
+        }
+        // surrogates are not encoded on their own.
+        if (lead == 0xED && (bytes.get(offset + 1) & 0xFF) >= 0xA0) return -3;
+        return width;
+    }
+
+    /**
+     * Returns the byte offset of the sequence that ends at {@code offset}.
+     */
+    private int previous(int offset) {
+        int start = offset - 1;
+        // a sequence starts with the first byte that is not a continuation byte, at most 3 before.
+        int limit = Math.max(bytes.position(), offset - 4);
+        while (start > limit && (bytes.get(start) & 0xC0) == 0x80) start--;
+        for (int next = start + Math.abs(width(start)); next < offset; next += Math.abs(width(next))) {
+            start = next;
+        }
+        return start;
+    }
+
+    private int decode(int offset, int width) {
+        int lead = bytes.get(offset) & 0xFF;
+        if (width == 1) return lead;
+        int codePoint = lead & (0xFF >>> (width + 1));
+        for (int i = 1; i < width; i++) {
+            codePoint = (codePoint << 6) | (bytes.get(offset + i) & 0x3F);
+        }
+        return codePoint;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+}
@@ -40,6 +40,23 @@ public abstract class Pattern {
      */
     public abstract int match(CharSequence src, int begin, int end);
 
+    /**
+     * Whether {@code this} may match one or more characters of a range that starts with {@code c}.
+     * Answering {@code false} allows a parser to skip this pattern by looking at the current character
+     * only, together with {@link #mayMatchEmpty()}. The default implementation answers {@code true}.
+     */
+    public boolean mayStartWith(char c) {
+        return true;
+    }
+
+    /**
+     * Whether {@code this} may match with match length {@code 0}. The default implementation answers
+     * {@code true}.
+     */
+    public boolean mayMatchEmpty() {
+        return true;
+    }
+
     /**
      * Returns a {@link Pattern} object that sequentially matches the character range against
      * {@code this} and then {@code next}. If both succeeds, the entire match length is returned.
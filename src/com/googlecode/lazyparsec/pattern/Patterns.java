@@ -38,6 +38,16 @@ public final class Patterns {
         public int match(CharSequence src, int begin, int end) {
             return Pattern.MISMATCH;
         }
+
+        @Override
+        public boolean mayStartWith(char c) {
+            return false;
+        }
+
+        @Override
+        public boolean mayMatchEmpty() {
+            return false;
+        }
     };
 
     /**
@@ -48,6 +58,16 @@ public final class Patterns {
         public int match(CharSequence src, int begin, int end) {
             return 0;
         }
+
+        @Override
+        public boolean mayStartWith(char c) {
+            return false;
+        }
+
+        @Override
+        public boolean mayMatchEmpty() {
+            return true;
+        }
     };
 
     /**
@@ -72,6 +92,16 @@ public final class Patterns {
             else if (src.charAt(begin) == '\\') return 2;
             else return Pattern.MISMATCH;
         }
+
+        @Override
+        public boolean mayStartWith(char c) {
+            return c == '\\';
+        }
+
+        @Override
+        public boolean mayMatchEmpty() {
+            return false;
+        }
     };
 
     /**
@@ -159,6 +189,16 @@ public final class Patterns {
                 if (begin + n > end) return Pattern.MISMATCH;
                 else return n;
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return n > 0;
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return n == 0;
+            }
         };
     }
 
@@ -173,6 +213,16 @@ public final class Patterns {
                 if (begin + n != end) return Pattern.MISMATCH;
                 else return n;
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return n > 0;
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return n == 0;
+            }
         };
     }
 
@@ -212,6 +262,16 @@ public final class Patterns {
                 else if (predicate.matches(src.charAt(begin))) return 1;
                 else return Pattern.MISMATCH;
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return predicate.matches(c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return false;
+            }
         };
     }
 
@@ -232,6 +292,16 @@ public final class Patterns {
             public int match(CharSequence src, int begin, int end) {
                 return matchString(string, src, begin, end);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return string.length() > 0 && string.charAt(0) == c;
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return string.length() == 0;
+            }
         };
     }
 
@@ -244,6 +314,16 @@ public final class Patterns {
             public int match(CharSequence src, int begin, int end) {
                 return matchStringCaseInsensitive(string, src, begin, end);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return string.length() > 0 && compareIgnoreCase(string.charAt(0), c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return string.length() == 0;
+            }
         };
     }
 
@@ -260,6 +340,11 @@ public final class Patterns {
                     return 1;
                 else return MISMATCH;
             }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return false;
+            }
         };
     }
 
@@ -276,6 +361,11 @@ public final class Patterns {
                     return 1;
                 else return MISMATCH;
             }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return false;
+            }
         };
     }
 
@@ -316,6 +406,11 @@ public final class Patterns {
                 if (pp.match(src, begin, end) != Pattern.MISMATCH) return Pattern.MISMATCH;
                 else return 0;
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return false;
+            }
         };
     }
 
@@ -326,6 +421,11 @@ public final class Patterns {
                 if (pp.match(src, begin, end) == Pattern.MISMATCH) return Pattern.MISMATCH;
                 else return 0;
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return false;
+            }
         };
     }
 
@@ -362,6 +462,16 @@ public final class Patterns {
                 }
                 return MISMATCH;
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return mayAnyStartWith(patterns, c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return mayAnyMatchEmpty(patterns);
+            }
         };
     }
 
@@ -381,6 +491,16 @@ public final class Patterns {
                 }
                 return current - begin;
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return maySequenceStartWith(patterns, c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return mayAllMatchEmpty(patterns);
+            }
         };
     }
 
@@ -395,6 +515,16 @@ public final class Patterns {
             public int match(CharSequence src, int begin, int end) {
                 return matchRepeat(n, predicate, src, end, begin, 0);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return n > 0 && predicate.matches(c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return n == 0;
+            }
         };
     }
 
@@ -409,6 +539,16 @@ public final class Patterns {
             public int match(CharSequence src, int begin, int end) {
                 return matchRepeat(n, pattern, src, end, begin, 0);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return n > 0 && pattern.mayStartWith(c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return n == 0 || pattern.mayMatchEmpty();
+            }
         };
     }
 
@@ -425,6 +565,16 @@ public final class Patterns {
                 if (minlen == MISMATCH) return MISMATCH;
                 return matchMany(predicate, src, end, begin + minlen, minlen);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return predicate.matches(c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return min == 0;
+            }
         };
     }
 
@@ -437,6 +587,11 @@ public final class Patterns {
             public int match(CharSequence src, int begin, int end) {
                 return matchMany(predicate, src, end, begin, 0);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return predicate.matches(c);
+            }
         };
     }
 
@@ -449,6 +604,16 @@ public final class Patterns {
                 if (MISMATCH == minlen) return MISMATCH;
                 return matchMany(pattern, src, end, begin + minlen, minlen);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return pattern.mayStartWith(c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return min == 0 || pattern.mayMatchEmpty();
+            }
         };
     }
 
@@ -458,6 +623,11 @@ public final class Patterns {
             public int match(CharSequence src, int begin, int end) {
                 return matchMany(pattern, src, end, begin, 0);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return pattern.mayStartWith(c);
+            }
         };
     }
 
@@ -474,6 +644,16 @@ public final class Patterns {
                 if (minlen == MISMATCH) return MISMATCH;
                 return matchSome(max - min, predicate, src, end, begin + minlen, minlen);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return max > 0 && predicate.matches(c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return min == 0;
+            }
         };
     }
 
@@ -488,6 +668,11 @@ public final class Patterns {
             public int match(CharSequence src, int begin, int end) {
                 return matchSome(max, predicate, src, end, begin, 0);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return max > 0 && predicate.matches(c);
+            }
         };
     }
 
@@ -500,6 +685,16 @@ public final class Patterns {
                 if (MISMATCH == minlen) return MISMATCH;
                 return matchSome(max - min, pp, src, end, begin + minlen, minlen);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return max > 0 && pp.mayStartWith(c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return min == 0 || pp.mayMatchEmpty();
+            }
         };
     }
 
@@ -510,6 +705,11 @@ public final class Patterns {
             public int match(CharSequence src, int begin, int end) {
                 return matchSome(max, pp, src, end, begin, 0);
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return max > 0 && pp.mayStartWith(c);
+            }
         };
     }
 
@@ -536,6 +736,16 @@ public final class Patterns {
                 }
                 return r;
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return mayAnyStartWith(patterns, c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return mayAnyMatchEmpty(patterns);
+            }
         };
     }
 
@@ -565,6 +775,16 @@ public final class Patterns {
                 }
                 return r;
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return mayAnyStartWith(patterns, c);
+            }
+
+            @Override
+            public boolean mayMatchEmpty() {
+                return mayAnyMatchEmpty(patterns);
+            }
         };
     }
 
@@ -599,8 +819,8 @@ public final class Patterns {
             @Override
             public int match(CharSequence src, int begin, int end) {
                 if (begin > end) return Pattern.MISMATCH;
-                Matcher matcher = p.matcher(src.subSequence(begin, end));
-                if (matcher.lookingAt()) return matcher.end();
+                Matcher matcher = p.matcher(src).region(begin, end);
+                if (matcher.lookingAt()) return matcher.end() - begin;
                 return Pattern.MISMATCH;
             }
         };
@@ -620,9 +840,44 @@ public final class Patterns {
                 final int l = pp.match(src, begin, end);
                 return (l == Pattern.MISMATCH) ? 0 : l;
             }
+
+            @Override
+            public boolean mayStartWith(char c) {
+                return pp.mayStartWith(c);
+            }
         };
     }
 
+    private static boolean mayAnyStartWith(Pattern[] patterns, char c) {
+        for (Pattern pattern : patterns) {
+            if (pattern.mayStartWith(c)) return true;
+        }
+        return false;
+    }
+
+    private static boolean mayAnyMatchEmpty(Pattern[] patterns) {
+        for (Pattern pattern : patterns) {
+            if (pattern.mayMatchEmpty()) return true;
+        }
+        return false;
+    }
+
+    private static boolean mayAllMatchEmpty(Pattern[] patterns) {
+        for (Pattern pattern : patterns) {
+            if (!pattern.mayMatchEmpty()) return false;
+        }
+        return true;
+    }
+
+    private static boolean maySequenceStartWith(Pattern[] patterns, char c) {
+        // the first character goes to the first pattern that doesn't match empty.
+        for (Pattern pattern : patterns) {
+            if (pattern.mayStartWith(c)) return true;
+            if (!pattern.mayMatchEmpty()) return false;
+        }
+        return false;
+    }
+
     private static int matchRepeat(
             int n, Predicate<Character> predicate, CharSequence src, int len, int from, int acc) {
         int tail = from + n;
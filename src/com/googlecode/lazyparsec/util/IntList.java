@@ -118,6 +118,13 @@ public final class IntList {
         buf = nbuf;
     }
 
+    /**
+     * Removes all the int values, keeping the capacity.
+     */
+    public void clear() {
+        len = 0;
+    }
+
     /**
      * Adds {@code i} into the array.
      *
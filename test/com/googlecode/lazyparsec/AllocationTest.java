@@ -0,0 +1,201 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.totallylazy.Callable1;
+import com.googlecode.totallylazy.Callable2;
+import junit.framework.TestCase;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Keeps the bytes allocated per character, token or operator on the hot parsing paths within a
+ * budget, as measured by {@code com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}.
+ * Fails on virtual machines that do not measure allocation, unless run with
+ * {@code -Dlazyparsec.allocation=skip}, which reports each skipped test on {@code System.err}.
+ * <p/>
+ * <p> A budget is about 1.5 times what is allocated today. A change that makes a test fail adds
+ * allocation to every parse, so lower the budget after a change that takes allocation away.
+ */
+public class AllocationTest extends TestCase {
+
+    private static final int WARM_UP_RUNS = 50;
+    private static final int MEASURED_RUNS = 20;
+    private static final boolean SKIP_UNMEASURED = "skip".equals(System.getProperty("lazyparsec.allocation"));
+
+    private static final Callable1<String, Integer> ONE = new Callable1<String, Integer>() {
+        public Integer call(String s) {
+            return 1;
+        }
+    };
+
+    private static final Callable1<Integer, Integer> SAME = new Callable1<Integer, Integer>() {
+        public Integer call(Integer v) {
+            return v;
+        }
+    };
+
+    private static final Callable2<Integer, Integer, Integer> LEFT = new Callable2<Integer, Integer, Integer>() {
+        public Integer call(Integer a, Integer b) {
+            return a;
+        }
+    };
+
+    public void testIdentifiers() {
+        StringBuilder builder = new StringBuilder("abc");
+        for (int i = 0; i < 1000; i++) {
+            builder.append(" abc").append(i);
+        }
+        assertBytesPerUnit(14, builder.length(), Scanners.IDENTIFIER.sepBy(Scanners.isChar(' ')), builder);
+    }
+
+    public void testIntegers() {
+        StringBuilder builder = new StringBuilder("0");
+        for (int i = 0; i < 1000; i++) {
+            builder.append(' ').append(i * 7919);
+        }
+        assertBytesPerUnit(12, builder.length(), Scanners.INTEGER.sepBy(Scanners.isChar(' ')), builder);
+    }
+
+    public void testSkipMany() {
+        String source = repeat("a", 10000);
+        assertBytesPerUnit(1, source.length(), Scanners.isChar('a').skipMany(), source);
+    }
+
+    public void testMany() {
+        String source = repeat("a", 10000);
+        assertBytesPerUnit(25, source.length(), Scanners.isChar('a').many(), source);
+    }
+
+    public void testLexer() {
+        Terminals terminals = Terminals.caseSensitive(new String[]{"+", "*", "(", ")"}, new String[]{"if"});
+        Parser<List<Token>> lexer = Parsers.or(Terminals.IntegerLiteral.TOKENIZER, terminals.tokenizer())
+                .lexer(Scanners.WHITESPACES.skipMany());
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("if x").append(i).append(" + 12 * (y) ");
+        }
+        assertBytesPerUnit(100, 8000, lexer, builder);
+    }
+
+    public void testFrom() {
+        Terminals terminals = Terminals.caseSensitive(new String[]{"+", "*", "(", ")"}, new String[]{"if"});
+        Parser<?> tokenizer = Parsers.or(Terminals.IntegerLiteral.TOKENIZER, terminals.tokenizer());
+        Parser<Void> delim = Scanners.WHITESPACES.skipMany();
+        final Parser<?> direct = Parsers.ANY_TOKEN.skipMany().from(tokenizer, delim);
+        final Parser<?> collected = Parsers.ANY_TOKEN.skipMany().from(tokenizer.lexer(delim));
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("if x").append(i).append(" + 12 * (y) ");
+        }
+        long directParse = bytesPerRun(new Runnable() {
+            public void run() {
+                direct.parse(builder);
+            }
+        });
+        long collectedParse = bytesPerRun(new Runnable() {
+            public void run() {
+                collected.parse(builder);
+            }
+        });
+        assertTrue(directParse + " >= " + collectedParse, directParse < collectedParse);
+        final ParseSession<?> session = direct.newSession();
+        long sessionParse = bytesPerRun(new Runnable() {
+            public void run() {
+                session.parse(builder);
+            }
+        });
+        assertTrue(sessionParse + " >= " + directParse, sessionParse < directParse);
+    }
+
+    public void testOperatorTable() {
+        Parser<Integer> parser = new OperatorTable<Integer>()
+                .infixl(Scanners.isChar('+').retn(LEFT), 10)
+                .infixl(Scanners.isChar('*').retn(LEFT), 20)
+                .prefix(Scanners.isChar('-').retn(SAME), 30)
+                .build(Scanners.INTEGER.map(ONE));
+        StringBuilder builder = new StringBuilder("1");
+        for (int i = 0; i < 1000; i++) {
+            builder.append(i % 2 == 0 ? "+" : "*-").append(i);
+        }
+        assertBytesPerUnit(300, 1000, parser, builder);
+    }
+
+    public void testSession() {
+        final Parser<Integer> parser = Scanners.INTEGER.map(ONE);
+        final ParseSession<Integer> session = parser.newSession();
+        long parse = bytesPerRun(new Runnable() {
+            public void run() {
+                parser.parse("12345");
+            }
+        });
+        long sessionParse = bytesPerRun(new Runnable() {
+            public void run() {
+                session.parse("12345");
+            }
+        });
+        assertTrue(sessionParse + " >= " + parse, sessionParse < parse);
+    }
+
+    private static void assertBytesPerUnit(int budget, int units, final Parser<?> parser, final CharSequence source) {
+        long bytes = bytesPerRun(new Runnable() {
+            public void run() {
+                parser.parse(source);
+            }
+        });
+        double perUnit = (double) bytes / units;
+        assertTrue(perUnit + " bytes per unit exceeds the budget of " + budget, perUnit <= budget);
+    }
+
+    @Override
+    protected void runTest() throws Throwable {
+        String unmeasured = unmeasured();
+        if (unmeasured == null) {
+            super.runTest();
+        } else if (SKIP_UNMEASURED) {
+            System.err.println("Skipped " + getName() + ": " + unmeasured);
+        } else {
+            fail(unmeasured + ", run with -Dlazyparsec.allocation=skip to skip");
+        }
+    }
+
+    /**
+     * Returns why allocation is not measured on this virtual machine, or {@code null} if it is.
+     */
+    private static String unmeasured() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return "allocation is not measured by " + bean.getClass().getName();
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+            return "thread allocated memory is not measured";
+        }
+        return null;
+    }
+
+    /**
+     * Returns the bytes allocated by one run of {@code parse} once warmed up.
+     */
+    private static long bytesPerRun(Runnable parse) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            parse.run();
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            parse.run();
+        }
+        return (threads.getThreadAllocatedBytes(thread) - before) / MEASURED_RUNS;
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(s);
+        }
+        return builder.toString();
+    }
+}
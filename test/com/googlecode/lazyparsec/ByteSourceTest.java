@@ -0,0 +1,55 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Unit test for {@link ByteSource}.
+ */
+public class ByteSourceTest extends TestCase {
+
+    public void testView() {
+        ByteBuffer buffer = ByteBuffer.wrap("xxabc".getBytes());
+        buffer.position(2);
+        CharSequence source = new ByteSource(buffer);
+        assertEquals(3, source.length());
+        assertEquals('c', source.charAt(2));
+        assertEquals("abc", source.toString());
+        assertEquals("b", source.subSequence(1, 2).toString());
+        assertEquals(2, buffer.position());
+    }
+
+    public void testHighBytes() {
+        CharSequence source = new ByteSource(ByteBuffer.wrap(new byte[]{(byte) 0xE9, 0x7F}));
+        assertEquals('\u00e9', source.charAt(0));
+        assertEquals('\u007f', source.charAt(1));
+    }
+
+    public void testParse() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        buffer.put("GET /index 1.1".getBytes()).flip();
+        Terminals terminals = Terminals.caseSensitive(new String[]{"/", "."}, new String[]{"GET"});
+        Parser<List<Token>> tokens = Parsers.or(terminals.tokenizer(), Scanners.INTEGER)
+                .lexer(Scanners.WHITESPACES.optional());
+        List<Token> result = tokens.parse(buffer);
+        assertEquals(6, result.size());
+        assertEquals(5, result.get(2).index());
+        assertEquals(5, result.get(2).length());
+        assertEquals("1", result.get(3).value().toString());
+        assertEquals(0, buffer.position());
+    }
+
+    public void testParse_error() {
+        try {
+            Scanners.IDENTIFIER.parse(ByteBuffer.wrap("ok\n!".getBytes()), "wire");
+            fail();
+        } catch (ParserException e) {
+            assertEquals("wire", e.getModuleName());
+            assertEquals(1, e.getLocation().line);
+            assertEquals(3, e.getLocation().column);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.pattern.CharacterPredicates;
+import com.googlecode.lazyparsec.pattern.Patterns;
+import junit.framework.TestCase;
+
+import static com.googlecode.lazyparsec.Asserts.assertFailure;
+import static com.googlecode.lazyparsec.Asserts.assertParser;
+import static com.googlecode.lazyparsec.Scanners.isChar;
+import static com.googlecode.lazyparsec.Scanners.pattern;
+
+/**
+ * Unit test for {@link CharDispatch}.
+ */
+public class CharDispatchTest extends TestCase {
+
+    private static final Parser<Void> DIGITS = pattern(Patterns.many1(CharacterPredicates.IS_DIGIT), "digits");
+
+    public void testOf() {
+        assertNull(CharDispatch.of(new Parser<?>[]{Scanners.ANY_CHAR, isChar('a').many()}));
+        CharDispatch dispatch = CharDispatch.of(new Parser<?>[]{
+                Scanners.string("foo").retn(1), DIGITS, Scanners.ANY_CHAR, isChar('b').label("bee")});
+        assertEquals(4, dispatch.order(state("")).length);
+        assertOrder(dispatch, 'f', 0, ~1, 2, ~3);
+        assertOrder(dispatch, '1', ~0, 1, 2, ~3);
+        assertOrder(dispatch, 'b', ~0, ~1, 2, 3);
+        assertOrder(dispatch, 'é', 0, 1, 2, 3);
+    }
+
+    public void testOr() {
+        Parser<Integer> parser = Parsers.or(
+                Scanners.string("foo").retn(1), DIGITS.retn(2), isChar('b').next(isChar('c')).retn(3));
+        Parser<Integer> optimized = Parsers.optimize(parser);
+        assertNotNull(((OrParser<Integer>) optimized).dispatch);
+        assertParser(optimized, "foo", 1);
+        assertParser(optimized, "12", 2);
+        assertParser(optimized, "bc", 3);
+        assertFailure(optimized, "x", 1, 1, "foo, digits or b expected, x encountered.");
+        assertFailure(optimized, "bd", 1, 2, "c expected, d encountered.");
+        assertFailure(optimized, "", 1, 1, "foo, digits or b expected, EOF encountered.");
+    }
+
+    public void testPlus() {
+        Parser<Void> parser = Parsers.plus(
+                Scanners.string("ab"), isChar('a').next(isChar('c')), isChar('d').label("dee"));
+        Parser<Void> optimized = Parsers.optimize(parser);
+        assertNotNull(((SumParser<Void>) optimized).dispatch);
+        assertParser(optimized, "ab", null);
+        assertParser(optimized, "ac", null);
+        assertParser(optimized, "d", null);
+        assertFailure(optimized, "x", 1, 1, "ab, a, d or dee expected, x encountered.");
+        assertFailure(optimized, "ae", 1, 2, "c expected, e encountered.");
+    }
+
+    public void testPlus_flattened() {
+        Parser<Void> parser = Parsers.optimize(Parsers.plus(Parsers.plus(isChar('a'), isChar('b')), isChar('c')));
+        assertEquals(3, parser.children().length);
+        assertFailure(parser, "d", 1, 1, "a, b or c expected, d encountered.");
+    }
+
+    public void testTokenizer() {
+        Terminals terminals = Terminals.caseSensitive(new String[]{"+", "++", "=="}, new String[]{"if"});
+        Parser<?> tokenizer = Parsers.optimize(terminals.tokenizer());
+        assertNotNull(((SumParser<?>) tokenizer).dispatch);
+        assertParser(tokenizer, "++", Tokens.reserved("++"));
+        assertParser(tokenizer, "if", Tokens.reserved("if"));
+        assertParser(tokenizer, "foo", Tokens.fragment("foo", Tokens.Tag.IDENTIFIER));
+    }
+
+    private static void assertOrder(CharDispatch dispatch, char c, int... expected) {
+        int[] order = dispatch.order(state(String.valueOf(c)));
+        assertEquals(expected.length, order.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], order[i]);
+        }
+    }
+
+    private static ScannerState state(String source) {
+        return new ScannerState(null, source, 0, new DefaultSourceLocator(source));
+    }
+}
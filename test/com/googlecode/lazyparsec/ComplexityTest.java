@@ -0,0 +1,200 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+import com.googlecode.totallylazy.Callable1;
+import com.googlecode.totallylazy.Callable2;
+import junit.framework.AssertionFailedError;
+import junit.framework.TestCase;
+
+/**
+ * Checks that representative grammars parse in time linear in the length of the input, by fitting
+ * the work done at growing input sizes to {@code work = c * n^k} and failing if {@code k} is
+ * well above 1. A quadratic parse has {@code k} close to 2.
+ * <p/>
+ * <p> The work is the number of characters read from the source, through {@link CharSequence#charAt}
+ * or copied out of it, which is what rescanning locators and repeated substring copies inflate.
+ * Unlike the time taken, it does not depend on the machine or its load. Inputs grow from 1K
+ * characters to 64K characters by default, and up to the number of characters given by the
+ * {@code lazyparsec.complexity.max} system property, such as 10000000, for a longer run.
+ */
+public class ComplexityTest extends TestCase {
+
+    private static final int MIN_LENGTH = 1024;
+    private static final int MAX_LENGTH = Integer.getInteger("lazyparsec.complexity.max", 64 * 1024);
+    private static final double MAX_EXPONENT = 1.2;
+
+    private static final Callable1<String, Integer> ONE = new Callable1<String, Integer>() {
+        public Integer call(String s) {
+            return 1;
+        }
+    };
+
+    private static final Callable2<Integer, Integer, Integer> LEFT = new Callable2<Integer, Integer, Integer>() {
+        public Integer call(Integer a, Integer b) {
+            return a;
+        }
+    };
+
+    public void testTerminals() {
+        Terminals terminals = Terminals.caseSensitive(new String[]{"=", ";"}, new String[]{"var"});
+        Parser<?> statement = Parsers.sequence(terminals.token("var"), Terminals.Identifier.PARSER,
+                terminals.token("="), Terminals.IntegerLiteral.PARSER, terminals.token(";"));
+        Parser<?> parser = statement.many().from(
+                Parsers.or(Terminals.IntegerLiteral.TOKENIZER, terminals.tokenizer()), Scanners.JAVA_DELIMITER);
+        assertLinear(parser, "var x1 = 23; // comment\nvar y = 4; /* comment */\n");
+    }
+
+    public void testIndentationLexer() {
+        Parser<?> parser = new Indentation().lexer(Scanners.IDENTIFIER, Indentation.WHITESPACES.optional());
+        assertLinear(parser, "a\n  b c\n    d\n  e\nf\n");
+    }
+
+    public void testNestedBlockComments() {
+        Parser<?> parser = Scanners.nestableBlockComment("/*", "*/").followedBy(Scanners.isChar(' ')).skipMany();
+        assertLinear(parser, "/* a /* b /* c */ d */ e */ ");
+    }
+
+    public void testOperatorTable() {
+        Parser.Reference<Integer> expression = Parser.newReference();
+        Parser<Integer> atom = Parsers.or(
+                Scanners.INTEGER.map(ONE), expression.lazy().between(Scanners.isChar('('), Scanners.isChar(')')));
+        Parser<Integer> parser = new OperatorTable<Integer>()
+                .infixl(Scanners.isChar('+').retn(LEFT), 10)
+                .infixl(Scanners.isChar('*').retn(LEFT), 20)
+                .build(atom);
+        expression.set(parser);
+        assertLinear(parser, "1+(2*34+5)*6+", "7");
+    }
+
+    public void testSource() {
+        assertLinear(Scanners.IDENTIFIER.source().sepBy(Scanners.isChar(' ')).source(), "abc d efgh ", "ijk");
+    }
+
+    public void testErrorLocation() {
+        final Parser<?> lines = Scanners.IDENTIFIER.sepBy(Scanners.isChar('\n'));
+        assertLinear(new Callable1<CharSequence, Object>() {
+            public Object call(CharSequence source) {
+                try {
+                    lines.parse(source);
+                } catch (ParserException e) {
+                    return e.getLocation();
+                }
+                throw new AssertionError("no error");
+            }
+        }, "abc\nd\nefgh\n", "!");
+    }
+
+    public void testQuadraticFails() {
+        try {
+            assertLinear(new Callable1<CharSequence, Object>() {
+                public Object call(CharSequence source) {
+                    // rescans the source up to every 16th character, as a naive locator does.
+                    int lines = 0;
+                    for (int i = 0; i < source.length(); i += 16) {
+                        for (int j = 0; j < i; j++) {
+                            if (source.charAt(j) == '\n') lines++;
+                        }
+                    }
+                    return lines;
+                }
+            }, "a\n", "");
+        } catch (AssertionFailedError e) {
+            return;
+        }
+        fail("quadratic parse not detected");
+    }
+
+    private static void assertLinear(final Parser<?> parser, String unit) {
+        assertLinear(parser, unit, "");
+    }
+
+    private static void assertLinear(final Parser<?> parser, String unit, String end) {
+        assertLinear(new Callable1<CharSequence, Object>() {
+            public Object call(CharSequence source) {
+                return parser.parse(source);
+            }
+        }, unit, end);
+    }
+
+    /**
+     * Parses {@code unit} repeated and followed by {@code end} at growing lengths, and checks that
+     * the characters read grow no faster than {@code n^MAX_EXPONENT}.
+     */
+    private static void assertLinear(Callable1<CharSequence, Object> parse, String unit, String end) {
+        int sizes = 0;
+        for (int n = MIN_LENGTH; n <= MAX_LENGTH; n *= 4) sizes++;
+        double[] logLengths = new double[sizes];
+        double[] logReads = new double[sizes];
+        int i = 0;
+        for (int n = MIN_LENGTH; n <= MAX_LENGTH; n *= 4) {
+            CountingSource source = new CountingSource(repeat(unit, n, end));
+            try {
+                parse.call(source);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            logLengths[i] = Math.log(source.length());
+            logReads[i] = Math.log(Math.max(source.reads, 1));
+            i++;
+        }
+        double exponent = slope(logLengths, logReads);
+        assertTrue("characters read grow as n^" + exponent, exponent <= MAX_EXPONENT);
+    }
+
+    /**
+     * The least squares slope of {@code ys} over {@code xs}.
+     */
+    private static double slope(double[] xs, double[] ys) {
+        double meanX = 0, meanY = 0;
+        for (int i = 0; i < xs.length; i++) {
+            meanX += xs[i] / xs.length;
+            meanY += ys[i] / ys.length;
+        }
+        double covariance = 0, variance = 0;
+        for (int i = 0; i < xs.length; i++) {
+            covariance += (xs[i] - meanX) * (ys[i] - meanY);
+            variance += (xs[i] - meanX) * (xs[i] - meanX);
+        }
+        return covariance / variance;
+    }
+
+    private static String repeat(String unit, int length, String end) {
+        StringBuilder builder = new StringBuilder(length + end.length());
+        while (builder.length() + unit.length() <= length) {
+            builder.append(unit);
+        }
+        return builder.append(end).toString();
+    }
+
+    /**
+     * A source that counts the characters read from it.
+     */
+    private static final class CountingSource implements CharSequence {
+        private final String source;
+        long reads = 0;
+
+        CountingSource(String source) {
+            this.source = source;
+        }
+
+        public int length() {
+            return source.length();
+        }
+
+        public char charAt(int index) {
+            reads++;
+            return source.charAt(index);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            reads += end - start;
+            return source.substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            reads += source.length();
+            return source;
+        }
+    }
+}
@@ -25,6 +25,16 @@ public class DefaultSourceLocatorTest extends TestCase {
         assertEquals(location, locator.locate(0));
     }
 
+    public void testReset() {
+        DefaultSourceLocator locator = new DefaultSourceLocator("a\nb");
+        assertEquals(new Location(2, 1), locator.locate(2));
+        locator.reset("ab\n\nc");
+        assertEquals(0, locator.lineBreakIndices.size());
+        assertEquals(new Location(1, 2), locator.locate(1));
+        assertEquals(new Location(2, 1), locator.locate(3));
+        assertEquals(new Location(3, 1), locator.locate(4));
+    }
+
     public void testBinaryFunctionSearch_firstElementIsEqual() {
         assertEquals(0, DefaultSourceLocator.BinaryFunctionSearch(intList(1, 2, 3), 1));
     }
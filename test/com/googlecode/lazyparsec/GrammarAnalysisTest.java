@@ -0,0 +1,123 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.totallylazy.Callable1;
+import junit.framework.TestCase;
+
+import java.util.List;
+
+import static com.googlecode.lazyparsec.Scanners.isChar;
+
+/**
+ * Unit test for {@link GrammarAnalysis}.
+ */
+public class GrammarAnalysisTest extends TestCase {
+
+    public void testAnalyze_clean() {
+        Parser<?> parser = Parsers.or(isChar('a'), isChar('b'), Scanners.INTEGER).many();
+        assertEquals(0, Parsers.analyze(parser).getFindings().size());
+    }
+
+    public void testAnalyze_overlappingAlternatives() {
+        Parser<?> parser = Parsers.or(Scanners.string("keyword"), Scanners.IDENTIFIER).label("word");
+        List<GrammarAnalysis.Finding> findings = Parsers.analyze(parser).getFindings();
+        assertEquals(1, findings.size());
+        GrammarAnalysis.Finding finding = findings.get(0);
+        assertEquals(GrammarAnalysis.Finding.Kind.OVERLAPPING_ALTERNATIVES, finding.getKind());
+        assertEquals("word", finding.getRule());
+        assertEquals("alternatives 1 and 2 both start with [k]", finding.getMessage());
+    }
+
+    public void testAnalyze_overlappingTokens() {
+        Terminals terminals = Terminals.caseSensitive(new String[]{"+", "-"}, new String[]{"if"});
+        Parser<?> parser = Parsers.or(
+                Parsers.sequence(terminals.token("if"), terminals.token("+")),
+                Parsers.sequence(terminals.token("if"), terminals.token("-")));
+        List<GrammarAnalysis.Finding> findings = Parsers.analyze(parser).getFindings();
+        assertEquals(1, findings.size());
+        assertEquals("alternatives 1 and 2 both start with [if]", findings.get(0).getMessage());
+    }
+
+    public void testAnalyze_emptyLoop() {
+        Parser<?> parser = isChar('a').optional().many().label("as");
+        List<GrammarAnalysis.Finding> findings = Parsers.analyze(parser).getFindings();
+        assertEquals(1, findings.size());
+        assertEquals(GrammarAnalysis.Finding.Kind.EMPTY_LOOP, findings.get(0).getKind());
+        assertEquals("as", findings.get(0).getRule());
+    }
+
+    public void testAnalyze_nonEmptyLoops() {
+        assertEquals(0, Parsers.analyze(Scanners.ANY_CHAR.many()).getFindings().size());
+        assertEquals(0, Parsers.analyze(Scanners.nestableBlockComment("/*", "*/").many()).getFindings().size());
+        assertEquals(0, Parsers.analyze(Scanners.INTEGER.source().many()).getFindings().size());
+        Terminals terminals = Terminals.caseSensitive(new String[]{"+"}, new String[0]);
+        Parser<?> tokens = terminals.token("+").many().from(terminals.tokenizer(), Scanners.WHITESPACES);
+        assertEquals(0, Parsers.analyze(Parsers.sequence(isChar('('), tokens, isChar(')')).many())
+                .getFindings().size());
+        Parser<?> listened = Parsers.listen(isChar('a').label("a"), new ParseListener() {
+        });
+        assertEquals(0, Parsers.analyze(listened.many()).getFindings().size());
+    }
+
+    public void testAnalyze_emptyLoopThroughWrapper() {
+        Parser<?> parser = Parsers.sequence(isChar('a').optional(), Parsers.runnable(new Runnable() {
+            public void run() {
+            }
+        })).many();
+        List<GrammarAnalysis.Finding> findings = Parsers.analyze(parser).getFindings();
+        assertEquals(1, findings.size());
+        assertEquals(GrammarAnalysis.Finding.Kind.EMPTY_LOOP, findings.get(0).getKind());
+    }
+
+    public void testAnalyze_leftRecursion() {
+        Parser.Reference<Void> ref = Parser.newReference();
+        Parser<Void> expr = Parsers.or(Parsers.sequence(ref.lazy(), isChar('+'), isChar('1')), isChar('1'))
+                .label("expr");
+        ref.set(expr);
+        List<GrammarAnalysis.Finding> findings = Parsers.analyze(expr).getFindings();
+        assertEquals(GrammarAnalysis.Finding.Kind.LEFT_RECURSION, findings.get(0).getKind());
+        assertEquals("expr", findings.get(0).getRule());
+    }
+
+    public void testAnalyze_rightRecursion() {
+        Parser.Reference<Void> ref = Parser.newReference();
+        Parser<Void> expr = Parsers.or(Parsers.sequence(isChar('('), ref.lazy(), isChar(')')), isChar('1'));
+        ref.set(expr);
+        assertEquals(0, Parsers.analyze(expr).getFindings().size());
+    }
+
+    public void testAnalyze_sortedByCost() {
+        Parser.Reference<Void> ref = Parser.newReference();
+        Parser<Void> block = Parsers.or(
+                Parsers.sequence(isChar('('), ref.lazy(), isChar(')')),
+                Parsers.sequence(isChar('('), ref.lazy(), isChar(']')),
+                Parsers.sequence(isChar('a'), isChar('b')).atomic(),
+                Parsers.sequence(isChar('a'), isChar('b').skipMany()).atomic());
+        ref.set(block);
+        GrammarAnalysis analysis = Parsers.analyze(block);
+        List<GrammarAnalysis.Finding> findings = analysis.getFindings();
+        assertEquals(2, findings.size());
+        assertTrue(findings.get(0).getCost() >= findings.get(1).getCost());
+        GrammarAnalysis.Finding overlap = findings.get(0).getKind() == GrammarAnalysis.Finding.Kind.OVERLAPPING_ALTERNATIVES
+                ? findings.get(0) : findings.get(1);
+        GrammarAnalysis.Finding atomic = overlap == findings.get(0) ? findings.get(1) : findings.get(0);
+        assertEquals(GrammarAnalysis.Finding.Kind.ATOMIC_BACKTRACKING, atomic.getKind());
+        assertEquals("alternatives 1 and 2 both start with [(]; alternatives 3 and 4 both start with [a]",
+                overlap.getMessage());
+        assertTrue(analysis.toString(), analysis.toString().contains("ATOMIC_BACKTRACKING"));
+    }
+
+    public void testAnalyze_unknown() {
+        Parser<?> parser = Parsers.or(Parsers.always().next(new Callable1<Object, Parser<Void>>() {
+            public Parser<Void> call(Object value) {
+                return isChar('a');
+            }
+        }), isChar('a'));
+        assertEquals(0, Parsers.analyze(parser).getFindings().size());
+        Parser<?> maybeEmpty = Parsers.always().next(new Callable1<Object, Parser<Void>>() {
+            public Parser<Void> call(Object value) {
+                return isChar('a').optional().cast();
+            }
+        });
+        assertEquals(0, Parsers.analyze(maybeEmpty.many()).getFindings().size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.pattern.CharacterPredicates;
+import com.googlecode.lazyparsec.pattern.Patterns;
+import com.googlecode.totallylazy.Callable1;
+import junit.framework.TestCase;
+
+import static com.googlecode.lazyparsec.Asserts.assertFailure;
+import static com.googlecode.lazyparsec.Asserts.assertParser;
+import static com.googlecode.lazyparsec.Scanners.isChar;
+import static com.googlecode.lazyparsec.Scanners.pattern;
+
+/**
+ * Unit test for {@link GrammarOptimizer}.
+ */
+public class GrammarOptimizerTest extends TestCase {
+
+    private static final Parser<Void> DIGITS = pattern(Patterns.many1(CharacterPredicates.IS_DIGIT), "digits");
+    private static final Parser<Void> LETTERS = pattern(Patterns.many1(CharacterPredicates.IS_LETTER), "letters");
+
+    public void testOr_flattened() {
+        Parser<Void> parser = optimize(Parsers.or(Parsers.or(isChar('a'), isChar('b')), isChar('c')));
+        assertEquals(3, parser.children().length);
+        assertParser(parser, "b", null);
+        assertFailure(parser, "d", 1, 1, "a, b or c expected, d encountered.");
+    }
+
+    public void testOr_neverDropped() {
+        Parser<Void> parser = optimize(Parsers.or(isChar('a'), Parsers.<Void>never()));
+        assertTrue(parser instanceof OrParser);
+        assertEquals(1, parser.children().length);
+        Parser<Void> never = Parsers.never();
+        assertSame(never, optimize(Parsers.or(never, never)).children()[0]);
+    }
+
+    public void testOr_singleAlternativeTakesBackPartialMatch() {
+        Parser<Void> ab = Parsers.sequence(isChar('a'), isChar('b'));
+        Parser<Void> parser = Parsers.plus(Parsers.or(ab, Parsers.<Void>never()), Scanners.string("ac"));
+        assertParser(optimize(parser), "ac", null);
+    }
+
+    public void testSequence_flattened() {
+        Parser<?> parser = optimize(Parsers.sequence(isChar('a'), isChar('b').next(isChar('c')), isChar('d')));
+        assertTrue(parser instanceof SequenceParser);
+        assertEquals(4, parser.children().length);
+        assertParser(parser, "abcd", null);
+        assertFailure(parser, "abd", 1, 3, "c expected, d encountered.");
+    }
+
+    public void testSequence_constantDropped() {
+        Parser<String> parser = optimize(isChar('a').retn("foo").next(isChar('b')).retn("bar"));
+        assertEquals(3, parser.children().length);
+        assertParser(parser, "ab", "bar");
+    }
+
+    public void testSequence_patternsFused() {
+        Parser<?> parser = optimize(Parsers.sequence(DIGITS, LETTERS, DIGITS, isChar('.')));
+        assertEquals(2, parser.children().length);
+        assertTrue(parser.children()[0] instanceof PatternSequenceScanner);
+        assertParser(parser, "1a2.", null);
+        assertFailure(parser, "1a.", 1, 3, "digits expected, . encountered.");
+        assertFailure(optimize(Parsers.plus(DIGITS.next(LETTERS), DIGITS)), "12", 1, 3,
+                "letters expected, EOF encountered.");
+    }
+
+    public void testMap_fused() {
+        Parser<Integer> parser = optimize(Scanners.INTEGER.map(new Callable1<String, Integer>() {
+            public Integer call(String s) {
+                return Integer.valueOf(s);
+            }
+        }).map(new Callable1<Integer, Integer>() {
+            public Integer call(Integer i) {
+                return i * 2;
+            }
+
+            @Override
+            public String toString() {
+                return "double";
+            }
+        }));
+        assertTrue(parser instanceof MapParser);
+        assertFalse(parser.children()[0] instanceof MapParser);
+        assertEquals("double", parser.toString());
+        assertParser(parser, "21", 42);
+    }
+
+    public void testSkipMany_patternLoop() {
+        Parser<Void> parser = optimize(DIGITS.skipMany());
+        assertTrue(parser instanceof SkipPatternScanner);
+        assertParser(parser, "", null);
+        assertParser(parser, "12", null);
+        assertFailure(parser.next(isChar('a')), "1b", 1, 2, "digits or a expected, b encountered.");
+        assertFailure(optimize(DIGITS.skipMany1()), "b", 1, 1, "digits expected, b encountered.");
+        assertParser(optimize(pattern(Patterns.ALWAYS, "always").skipMany()), "", null);
+        assertParser(optimize(pattern(Patterns.ALWAYS, "always").skipAtLeast(2)), "", null);
+    }
+
+    public void testOptimize_nothingToOptimize() {
+        Parser<?> parser = Parsers.or(isChar('a').many(), isChar('b').many(), isChar('c').many1().atomic());
+        assertSame(parser, optimize(parser));
+    }
+
+    public void testOptimize_leavesReferences() {
+        Parser.Reference<Void> ref = Parser.newReference();
+        ref.set(isChar('a'));
+        Parser<Void> parser = optimize(Parsers.or(ref.lazy(), isChar('b')));
+        assertSame(ref.lazy().getClass(), parser.children()[0].getClass());
+        ref.set(isChar('c'));
+        assertParser(parser, "c", null);
+    }
+
+    private static <T> Parser<T> optimize(Parser<T> parser) {
+        return new GrammarOptimizer(false).rewrite(parser);
+    }
+}
@@ -0,0 +1,75 @@
+package com.googlecode.lazyparsec;
+
+import junit.framework.TestCase;
+
+import static com.googlecode.lazyparsec.Asserts.assertFailure;
+import static com.googlecode.lazyparsec.Asserts.assertParser;
+import static com.googlecode.lazyparsec.Scanners.isChar;
+
+/**
+ * Unit test for {@link GrammarRewriter}.
+ */
+public class GrammarRewriterTest extends TestCase {
+
+    public void testRewrite_nothingToRewrite() {
+        Parser<?> parser = Parsers.or(isChar('a'), isChar('b')).many();
+        assertSame(parser, new GrammarRewriter(true).rewrite(parser));
+    }
+
+    public void testRewrite_inlinesReference() {
+        Parser.Reference<Void> ref = Parser.newReference();
+        Parser<Void> a = isChar('a');
+        ref.set(a);
+        Parser<?> parser = new GrammarRewriter(true).rewrite(ref.lazy().skipMany());
+        assertSame(a, parser.children()[0]);
+        ref.set(isChar('b'));
+        assertParser(parser, "aa", null);
+    }
+
+    public void testRewrite_relinksReference() {
+        Parser.Reference<Void> ref = Parser.newReference();
+        Parser<Void> a = isChar('a');
+        ref.set(a);
+        Parser<?> parser = new GrammarRewriter(false).rewrite(ref.lazy().many());
+        Parser<?> lazy = parser.children()[0];
+        assertTrue(lazy instanceof LazyParser);
+        assertSame(a, ((LazyParser<?>) lazy).target());
+    }
+
+    public void testRewrite_keepsRecursiveReference() {
+        Parser.Reference<String> ref = Parser.newReference();
+        Parser<String> lazy = ref.lazy();
+        ref.set(Parsers.or(Parsers.between(isChar('('), lazy, isChar(')')), Scanners.IDENTIFIER));
+        Parser<String> parser = new GrammarRewriter(true).rewrite(lazy);
+        assertTrue(parser instanceof LazyParser);
+        assertNotSame(lazy, parser);
+        assertParser(parser, "((foo))", "foo");
+        assertFailure(parser, "((foo)", 1, 7);
+    }
+
+    public void testRewrite_sharesRewrittenParser() {
+        Parser.Reference<Void> ref = Parser.newReference();
+        ref.set(isChar('a'));
+        Parser<Void> shared = ref.lazy().step(0);
+        Parser<?> parser = new GrammarRewriter(true).rewrite(Parsers.sequence(shared, shared));
+        assertSame(parser.children()[0], parser.children()[1]);
+        assertNotSame(shared, parser.children()[0]);
+    }
+
+    public void testRewrite_uninitializedReference() {
+        Parser<String> lazy = Parser.<String>newReference().lazy();
+        assertSame(lazy, new GrammarRewriter(true).rewrite(lazy));
+    }
+
+    public void testRewrite_rewriteNode() {
+        GrammarRewriter rewriter = new GrammarRewriter(true) {
+            @Override
+            <T> Parser<T> rewriteNode(Parser<T> parser) {
+                return (parser instanceof IsCharScanner) ? parser.step(0) : parser;
+            }
+        };
+        Parser<?> parser = rewriter.rewrite(Parsers.sequence(isChar('a'), isChar('b')));
+        assertTrue(parser.children()[0] instanceof StepParser);
+        assertTrue(parser.children()[1] instanceof StepParser);
+    }
+}
@@ -0,0 +1,212 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+import com.googlecode.totallylazy.Callable1;
+import com.googlecode.totallylazy.Callable3;
+import com.googlecode.totallylazy.Callable4;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit test for {@link IncrementalParser}.
+ */
+public class IncrementalParserTest extends TestCase {
+    private static final Terminals TERMINALS =
+            Terminals.caseSensitive(new String[]{"=", ";"}, new String[]{"let"});
+    private static final Parser<?> TOKENIZER = Parsers.or(
+            TERMINALS.tokenizer(), Terminals.IntegerLiteral.TOKENIZER, Terminals.Identifier.TOKENIZER);
+    private static final Parser<Void> DELIM = Scanners.WHITESPACES.optional();
+
+    private static final Parser<Token> NAME = Parsers.token(new TokenMap<Token>() {
+        public Token map(Token token) {
+            return token.value() instanceof Tokens.Fragment ? token : null;
+        }
+    });
+
+    private final int[] statements = {0};
+
+    /**
+     * {@code let name = value;} statements, returned as {@code name=value@index} strings.
+     */
+    private Parser<List<String>> program() {
+        Parser<String> statement = TERMINALS.token("let").next(Parsers.sequence(
+                Parsers.INDEX, Terminals.Identifier.PARSER, TERMINALS.token("="), Terminals.IntegerLiteral.PARSER,
+                new Callable4<Integer, String, Token, String, String>() {
+                    public String call(Integer index, String name, Token equals, String value) {
+                        statements[0]++;
+                        return name + "=" + value + "@" + index;
+                    }
+                })).followedBy(TERMINALS.token(";"));
+        return statement.memoize().many();
+    }
+
+    private static String statements(int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append("let x").append(i).append(" = ").append(i).append(";\n");
+        }
+        return builder.toString();
+    }
+
+    public void testParse() {
+        IncrementalParser<List<String>> parser = program().incremental(TOKENIZER, DELIM);
+        assertEquals(Arrays.asList("a=1@4", "b=2@15"), parser.parse("let a = 1; let b = 2;"));
+        assertEquals(10, parser.lexed());
+    }
+
+    public void testEdit_sameLength() {
+        Parser<List<String>> program = program();
+        IncrementalParser<List<String>> parser = program.incremental(TOKENIZER, DELIM);
+        String source = statements(1000);
+        parser.parse(source);
+        statements[0] = 0;
+        int offset = source.indexOf("x500 = 500") + 7;
+        List<String> result = parser.edit(offset, 3, "777");
+        assertEquals("x500=777@" + source.indexOf("x500"), result.get(500));
+        assertTrue(parser.lexed() + " tokens lexed again", parser.lexed() <= 3);
+        assertTrue(statements[0] + " statements parsed again", statements[0] <= 2);
+        assertEquals(program.from(TOKENIZER, DELIM).parse(parser.getSource()), result);
+    }
+
+    public void testEdit_insertion() {
+        Parser<List<String>> program = program();
+        IncrementalParser<List<String>> parser = program.incremental(TOKENIZER, DELIM);
+        String source = statements(1000);
+        parser.parse(source);
+        statements[0] = 0;
+        int offset = source.indexOf("let x900");
+        List<String> result = parser.edit(offset, 0, "let y = 1; ");
+        assertEquals(1001, result.size());
+        assertTrue(parser.lexed() + " tokens lexed again", parser.lexed() <= 8);
+        // the statements after the insertion are at other indices now.
+        assertTrue(statements[0] + " statements parsed again", statements[0] <= 110);
+        assertEquals(program.from(TOKENIZER, DELIM).parse(parser.getSource()), result);
+    }
+
+    public void testEdit_insertionMovesTokens() {
+        final int[] parsed = {0};
+        Parser<Token> statement = TERMINALS.token("let").next(Parsers.sequence(
+                NAME, TERMINALS.token("="), Terminals.IntegerLiteral.PARSER,
+                new Callable3<Token, Token, String, Token>() {
+                    public Token call(Token name, Token equals, String value) {
+                        parsed[0]++;
+                        return name;
+                    }
+                })).followedBy(TERMINALS.token(";"));
+        Parser<List<Token>> program = statement.memoize().many();
+        IncrementalParser<List<Token>> parser = program.incremental(TOKENIZER, DELIM);
+        String source = statements(1000);
+        parser.parse(source);
+        parsed[0] = 0;
+        List<Token> result = parser.edit(source.indexOf("let x900"), 0, "let y = 1; ");
+        assertTrue(parsed[0] + " statements parsed again", parsed[0] <= 2);
+        assertEquals(parser.getSource().indexOf("x999"), result.get(1000).index());
+        assertEquals(program.from(TOKENIZER, DELIM).parse(parser.getSource()), result);
+    }
+
+    public void testEdit_insertionReadingTokenIndex() {
+        Parser<String> statement = TERMINALS.token("let").next(Parsers.sequence(
+                NAME, TERMINALS.token("="), Terminals.IntegerLiteral.PARSER,
+                new Callable3<Token, Token, String, String>() {
+                    public String call(Token name, Token equals, String value) {
+                        return name.value() + "@" + name.index();
+                    }
+                })).followedBy(TERMINALS.token(";"));
+        assertEdit(statement.memoize().many(), statements(20), statements(10).length(), 0, "let y = 1; ");
+    }
+
+    public void testEdit_insertionOfTokenResults() {
+        Parser<String> statement = TERMINALS.token("let").next(Terminals.Identifier.PARSER.token()).map(
+                new Callable1<Token, String>() {
+                    public String call(Token name) {
+                        return name.value() + "@" + name.index();
+                    }
+                }).followedBy(TERMINALS.token("=")).followedBy(NAME).followedBy(TERMINALS.token(";"));
+        assertEdit(statement.memoize().many(), statements(20), statements(10).length(), 0, "let y = 1; ");
+    }
+
+    public void testEdit_joinsTokens() {
+        IncrementalParser<List<String>> parser = program().incremental(TOKENIZER, DELIM);
+        parser.parse("let a = 1; let b = 2;");
+        assertEquals(Arrays.asList("a=1@4", "bc=2@15"), parser.edit(16, 0, "c"));
+        assertEquals(Arrays.asList("a=1@4", "bc=2@14"), parser.edit(10, 1, ""));
+        assertEquals("let a = 1;let bc = 2;", parser.getSource());
+    }
+
+    public void testEdit_batch() {
+        Parser<List<String>> program = program();
+        IncrementalParser<List<String>> parser = program.incremental(TOKENIZER, DELIM);
+        parser.parse(statements(10));
+        List<String> result = parser.edit(Arrays.asList(
+                new IncrementalParser.Edit(0, 0, "let first = 0; "),
+                new IncrementalParser.Edit(15 + 4, 2, "renamed")));
+        assertEquals(program.from(TOKENIZER, DELIM).parse(parser.getSource()), result);
+        assertEquals("renamed=0@19", result.get(1));
+    }
+
+    public void testEdit_errors() {
+        Parser<List<String>> program = program();
+        IncrementalParser<List<String>> parser = program.incremental(TOKENIZER, DELIM);
+        parser.parse(statements(3));
+        try {
+            parser.edit(4, 0, "=");
+            fail();
+        } catch (ParserException e) {
+            assertEquals(1, e.getLocation().line);
+            assertEquals(5, e.getLocation().column);
+        }
+        try {
+            parser.edit(4, 1, "#");
+            fail();
+        } catch (ParserException e) {
+            assertEquals(1, e.getLocation().line);
+            assertEquals(5, e.getLocation().column);
+        }
+        assertEquals(program.from(TOKENIZER, DELIM).parse(statements(3)), parser.edit(4, 1, ""));
+    }
+
+    public void testEdit_peek() {
+        Parser<String> word = Terminals.Identifier.PARSER;
+        Parser<String> item = Parsers.or(
+                word.followedBy(Parsers.sequence(word, word, word, word).peek()).retn("P"), word.retn("S"));
+        assertEdit(item.memoize().many(), "a b c d e f g h", 13, 2, "");
+    }
+
+    public void testEdit_not() {
+        Parser<String> word = Terminals.Identifier.PARSER;
+        Parser<String> item = Parsers.or(
+                word.followedBy(Parsers.sequence(word, word, word, word).not()).retn("N"), word.retn("S"));
+        assertEdit(item.memoize().many(), "a b c d", 7, 0, " e");
+    }
+
+    public void testEdit_nullInserted() {
+        try {
+            new IncrementalParser.Edit(3, 1, null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("no text inserted at 3, use \"\" to insert nothing", e.getMessage());
+        }
+    }
+
+    public void testEdit_nothingParsed() {
+        try {
+            program().incremental(TOKENIZER, DELIM).edit(0, 0, "x");
+            fail();
+        } catch (IllegalStateException e) {
+        }
+    }
+
+    /**
+     * Asserts that {@code program} parses {@code source} edited as it parses the edited source from
+     * scratch.
+     */
+    private static void assertEdit(
+            Parser<List<String>> program, String source, int offset, int removed, String inserted) {
+        IncrementalParser<List<String>> parser = program.incremental(TOKENIZER, DELIM);
+        parser.parse(source);
+        List<String> result = parser.edit(offset, removed, inserted);
+        assertEquals(program.from(TOKENIZER, DELIM).parse(parser.getSource()), result);
+    }
+}
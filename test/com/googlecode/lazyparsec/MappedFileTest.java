@@ -0,0 +1,153 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+import com.googlecode.lazyparsec.pattern.CharacterPredicates;
+import com.googlecode.lazyparsec.pattern.Patterns;
+import com.googlecode.totallylazy.Callable1;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit test for {@link MappedFile}.
+ */
+public class MappedFileTest extends TestCase {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+
+    private File file;
+
+    @Override
+    protected void setUp() throws IOException {
+        file = File.createTempFile("mapped", ".txt");
+    }
+
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    public void testMap_ascii() throws IOException {
+        write("foo\nbar".getBytes("US-ASCII"));
+        CharSequence source = MappedFile.map(file, UTF8);
+        assertTrue(source instanceof ByteSource);
+        assertEquals("foo\nbar", source.toString());
+        assertEquals("bar", source.subSequence(4, 7).toString());
+    }
+
+    public void testMap_latin1() throws IOException {
+        write("caf\u00e9".getBytes("ISO-8859-1"));
+        assertEquals("caf\u00e9", MappedFile.map(file, LATIN1).toString());
+    }
+
+    public void testMap_utf8() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            builder.append(i % 7 == 0 ? "\ud83d\ude00" : i % 3 == 0 ? "\u00e9" : i % 5 == 0 ? "\u20ac" : "x");
+        }
+        String expected = builder.toString();
+        write(expected.getBytes("UTF-8"));
+        CharSequence source = MappedFile.map(file, UTF8);
+        assertTrue(source instanceof Utf8Source);
+        assertEquals(expected.length(), source.length());
+        assertEquals(expected, source.toString());
+        for (int i = expected.length() - 1; i >= 0; i -= 97) {
+            assertEquals(expected.charAt(i), source.charAt(i));
+        }
+        assertEquals(expected.substring(1023, 2050), source.subSequence(1023, 2050).toString());
+    }
+
+    public void testMap_malformed() throws IOException {
+        write(new byte[]{'a', (byte) 0xC3, 'b', (byte) 0xE2, (byte) 0x82});
+        assertEquals("a\ufffdb\ufffd", MappedFile.map(file, UTF8).toString());
+    }
+
+    public void testUtf8_decodedAsCharset() {
+        int[][] malformed = {{0xE0, 0x80, 0x80}, {0xED, 0xA0, 0x80}, {0xED, 0xA0, 'a'}, {0xF4, 0x90, 0x80, 0x80},
+                {0xF0, 0x80, 0x80, 0x80}, {0xC0, 0x80}, {0xF5, 0x80}, {0xF0, 0x9F, 0x98, 'a'}, {0xF0, 0x9F, 0x98}};
+        for (int[] sequence : malformed) {
+            byte[] bytes = new byte[sequence.length];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) sequence[i];
+            }
+            assertDecodedAsCharset(bytes);
+        }
+        Random random = new Random(42);
+        int[] interesting = {'a', 0x80, 0x8F, 0x90, 0x9F, 0xA0, 0xBF, 0xC0, 0xC3, 0xE0, 0xE2, 0xED, 0xEF, 0xF0, 0xF4, 0xF5};
+        for (int n = 0; n < 200; n++) {
+            byte[] bytes = new byte[random.nextInt(64)];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) interesting[random.nextInt(interesting.length)];
+            }
+            assertDecodedAsCharset(bytes);
+        }
+    }
+
+    public void testUtf8_readBackwards() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            builder.append(i % 7 == 0 ? "\ud83d\ude00" : i % 3 == 0 ? "\u00e9" : i % 5 == 0 ? "\u20ac" : "x");
+        }
+        String expected = builder.toString();
+        CharSequence source = new Utf8Source(ByteBuffer.wrap(expected.getBytes("UTF-8")));
+        for (int i = expected.length() - 1; i >= 0; i--) {
+            assertEquals(expected.charAt(i), source.charAt(i));
+        }
+        for (int i = 0; i + 10 < expected.length(); i += 7) {
+            assertEquals(expected.charAt(i + 10), source.charAt(i + 10));
+            assertEquals(expected.charAt(i), source.charAt(i));
+        }
+    }
+
+    public void testMap_otherCharset() throws IOException {
+        write("\u00e9t\u00e9".getBytes("UTF-16BE"));
+        assertEquals("\u00e9t\u00e9", MappedFile.map(file, Charset.forName("UTF-16BE")).toString());
+    }
+
+    public void testParse() throws IOException {
+        write("h\u00e9llo w\u00f6rld".getBytes("UTF-8"));
+        Parser<String> words = Scanners.pattern(Patterns.isChar(CharacterPredicates.IS_LETTER).many1(), "word")
+                .source().sepBy(Scanners.isChar(' ')).map(new Callable1<List<String>, String>() {
+                    public String call(List<String> list) {
+                        return list.get(1);
+                    }
+                });
+        assertEquals("w\u00f6rld", words.parse(file));
+    }
+
+    public void testParse_error() throws IOException {
+        write("foo\nbar baz".getBytes("UTF-8"));
+        try {
+            Scanners.IDENTIFIER.sepBy(Scanners.isChar('\n')).parse(file);
+            fail();
+        } catch (ParserException e) {
+            assertEquals(file.getPath(), e.getModuleName());
+            assertEquals(2, e.getLocation().line);
+            assertEquals(4, e.getLocation().column);
+        }
+    }
+
+    private static void assertDecodedAsCharset(byte[] bytes) {
+        String expected = UTF8.decode(ByteBuffer.wrap(bytes)).toString();
+        CharSequence source = new Utf8Source(ByteBuffer.wrap(bytes));
+        assertEquals(expected, source.toString());
+        for (int i = expected.length() - 1; i >= 0; i--) {
+            assertEquals(expected.charAt(i), source.charAt(i));
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.googlecode.lazyparsec;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for {@link MemoTable}.
+ */
+public class MemoTableTest extends TestCase {
+
+    public void testNewId() {
+        int id = MemoTable.newId();
+        assertTrue(id != 0);
+        assertTrue(MemoTable.newId() != id);
+    }
+
+    public void testLookup_empty() {
+        MemoTable memo = new MemoTable(16);
+        assertEquals(-1, memo.lookup(MemoTable.newId(), 0));
+    }
+
+    public void testPut() {
+        MemoTable memo = new MemoTable(16);
+        int id = MemoTable.newId();
+        memo.put(id, 3, true, 5, 6, false, 1, "foo", null);
+        int slot = memo.lookup(id, 3);
+        assertTrue(slot >= 0);
+        assertTrue(memo.succeeded(slot));
+        assertEquals(5, memo.end(slot));
+        assertEquals(6, memo.furthest(slot));
+        assertEquals(1, memo.steps(slot));
+        assertEquals("foo", memo.result(slot));
+        assertEquals(-1, memo.lookup(id, 4));
+        assertEquals(-1, memo.lookup(MemoTable.newId(), 3));
+    }
+
+    public void testPut_evictsCollidingEntry() {
+        MemoTable memo = new MemoTable(1);
+        int id = MemoTable.newId();
+        memo.put(id, 1, true, 2, 1, false, 1, "foo", null);
+        memo.put(id, 2, false, 2, 2, false, 0, null, null);
+        assertEquals(-1, memo.lookup(id, 1));
+        assertFalse(memo.succeeded(memo.lookup(id, 2)));
+    }
+
+    public void testClear() {
+        MemoTable memo = new MemoTable(16);
+        int id = MemoTable.newId();
+        memo.put(id, 3, true, 5, 6, false, 1, "foo", null);
+        memo.clear();
+        assertEquals(-1, memo.lookup(id, 3));
+    }
+
+    public void testEdit() {
+        MemoTable memo = new MemoTable(16);
+        int id = MemoTable.newId();
+        memo.put(id, 0, true, 1, 1, false, 1, "before", noErrorsAt(0));
+        memo.put(id, 1, true, 2, 4, false, 1, "looked ahead", noErrorsAt(1));
+        memo.put(id, 5, true, 6, 6, false, 1, "after", noErrorsAt(5));
+        memo.put(id, 6, true, 7, 7, true, 1, "indexed", noErrorsAt(6));
+        MemoTable edited = memo.edit(16, 2, 4, 1, 3);
+        assertEquals("before", edited.result(edited.lookup(id, 0)));
+        assertEquals(-1, edited.lookup(id, 1));
+        int slot = edited.lookup(id, 6);
+        assertEquals("after", edited.result(slot));
+        assertEquals(7, edited.end(slot));
+        assertEquals(7, edited.furthest(slot));
+        assertFalse(edited.indexed(slot));
+        assertEquals(-1, edited.lookup(id, 7));
+    }
+
+    public void testEdit_keepingSourceLength() {
+        MemoTable memo = new MemoTable(16);
+        int id = MemoTable.newId();
+        memo.put(id, 6, true, 7, 7, true, 1, "indexed", noErrorsAt(6));
+        MemoTable edited = memo.edit(16, 2, 4, 1, 0);
+        int slot = edited.lookup(id, 7);
+        assertEquals("indexed", edited.result(slot));
+        assertTrue(edited.indexed(slot));
+    }
+
+    public void testCapacityNotPowerOfTwo() {
+        try {
+            new MemoTable(3);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("capacity 3 is not a power of 2", e.getMessage());
+        }
+    }
+
+    private static ParseContext.ErrorState noErrorsAt(int at) {
+        return new ParseContext.ErrorState(at, at, ParseContext.ErrorType.NONE, new Object[0], null);
+    }
+}
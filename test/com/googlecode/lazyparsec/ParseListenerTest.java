@@ -0,0 +1,98 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.googlecode.lazyparsec.Asserts.assertFailure;
+import static com.googlecode.lazyparsec.Asserts.assertParser;
+import static com.googlecode.lazyparsec.Scanners.isChar;
+
+/**
+ * Unit test for {@link ParseListener}.
+ */
+public class ParseListenerTest extends TestCase {
+
+    private static final Terminals TERMINALS =
+            Terminals.caseSensitive(new String[]{"+", "-"}, new String[]{"if", "then", "else"});
+
+    private final Recorder recorder = new Recorder();
+
+    public void testRule() {
+        Parser<Void> parser = Parsers.sequence(isChar('a').label("A"), isChar('b'));
+        assertParser(Parsers.listen(parser, recorder), "ab", null);
+        assertEquals("[enter A 0, exit A 1 true]", recorder.events.toString());
+    }
+
+    public void testAlternativeFailed() {
+        Parser<Void> parser = Parsers.or(
+                Parsers.sequence(isChar('a'), isChar('b')), Parsers.sequence(isChar('a'), isChar('c')));
+        assertParser(Parsers.listen(parser, recorder), "ac", null);
+        assertEquals("[expected b 1, or 0 failed 0-1]", recorder.events.toString());
+    }
+
+    public void testAlternativeFailed_longest() {
+        Parser<Void> parser = Parsers.longest(isChar('x'), Parsers.sequence(isChar('a'), isChar('c')));
+        assertParser(Parsers.listen(parser, recorder), "ac", null);
+        assertEquals("[expected x 0, longest 0 failed 0-0]", recorder.events.toString());
+    }
+
+    public void testTokenConsumed() {
+        Parser<String> parser = TERMINALS.token("if").next(Terminals.Identifier.PARSER)
+                .from(TERMINALS.tokenizer(), Scanners.WHITESPACES);
+        recorder.tokensOnly = true;
+        assertParser(Parsers.listen(parser, recorder), "if foo", "foo");
+        assertEquals("[token if, token foo]", recorder.events.toString());
+    }
+
+    public void testErrorRaised() {
+        Parser<Void> parser = Parsers.or(isChar('a'), Parsers.<Void>fail("no b"));
+        assertFailure(Parsers.listen(parser, recorder), "b", 1, 1, "no b");
+        // 'a' is ruled out by looking at the next character and is not tried.
+        assertEquals("[expected a 0, failure no b 0, or 1 failed 0-0]", recorder.events.toString());
+    }
+
+    public void testParserUnchanged() {
+        Parser<Void> parser = isChar('a').label("A");
+        Parsers.listen(parser, recorder);
+        assertParser(parser, "a", null);
+        try {
+            parser.parse("b");
+            fail();
+        } catch (ParserException e) {
+        }
+        assertEquals(0, recorder.events.size());
+    }
+
+    private static final class Recorder extends ParseListener {
+        final List<String> events = new ArrayList<String>();
+        boolean tokensOnly = false;
+
+        @Override
+        public void enter(String rule, int index) {
+            if (!tokensOnly) events.add("enter " + rule + " " + index);
+        }
+
+        @Override
+        public void exit(String rule, int index, boolean success) {
+            if (!tokensOnly) events.add("exit " + rule + " " + index + " " + success);
+        }
+
+        @Override
+        public void alternativeFailed(String choice, int alternative, int from, int index) {
+            if (!tokensOnly) events.add(choice + " " + alternative + " failed " + from + "-" + index);
+        }
+
+        @Override
+        public void tokenConsumed(Token token) {
+            events.add("token " + token.value());
+        }
+
+        @Override
+        public void errorRaised(String kind, Object subject, int index) {
+            if (!tokensOnly) events.add(kind + " " + subject + " " + index);
+        }
+    }
+}
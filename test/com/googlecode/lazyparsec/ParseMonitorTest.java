@@ -0,0 +1,102 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.googlecode.lazyparsec.Scanners.isChar;
+import static com.googlecode.lazyparsec.Scanners.string;
+
+/**
+ * Unit test for {@link ParseMonitor}.
+ */
+public class ParseMonitorTest extends TestCase {
+
+    private final Recorder recorder = new Recorder(3);
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ParseMonitor.install(recorder);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ParseMonitor.install(null);
+        super.tearDown();
+    }
+
+    public void testParsed() {
+        assertEquals("abc", string("abc").source().parse("abc", "test"));
+        assertEquals("[parsed test 3 true]", recorder.events.toString());
+    }
+
+    public void testFailed() {
+        try {
+            Parsers.sequence(isChar('a'), isChar('b'), isChar('c')).parse("abd", "test");
+            fail();
+        } catch (ParserException e) {
+            assertEquals(3, e.getLocation().column);
+        }
+        assertEquals("[failed 1:3, parsed test 3 false]", recorder.events.toString());
+    }
+
+    public void testMatches() {
+        assertFalse(isChar('a').matches("b"));
+        assertNull(isChar('a').parseOrNull("b"));
+        assertEquals("[parsed null 1 false, parsed null 1 false]", recorder.events.toString());
+    }
+
+    public void testSession() {
+        ParseSession<Void> session = isChar('a').newSession();
+        session.parse("a");
+        session.parse("a");
+        assertEquals("[parsed null 1 true, parsed null 1 true]", recorder.events.toString());
+    }
+
+    public void testBacktracked() {
+        Parser<Void> parser = Parsers.or(
+                Parsers.sequence(string("abc"), isChar('x')), Parsers.sequence(string("abcd"), isChar('y')),
+                string("abcdef"));
+        parser.parse("abcdef");
+        assertEquals("[backtracked 3 0, backtracked 4 0, parsed null 6 true]", recorder.events.toString());
+    }
+
+    public void testBacktracked_belowThreshold() {
+        Parsers.or(Parsers.sequence(isChar('a'), isChar('b'), isChar('c')), string("abd")).parse("abd");
+        assertEquals("[parsed null 3 true]", recorder.events.toString());
+    }
+
+    public void testNotInstalled() {
+        ParseMonitor.install(null);
+        assertNull(ParseMonitor.installed());
+        isChar('a').parse("a");
+        assertEquals(0, recorder.events.size());
+    }
+
+    private static final class Recorder extends ParseMonitor {
+        final List<String> events = new ArrayList<String>();
+
+        Recorder(int backtrackThreshold) {
+            super(backtrackThreshold);
+        }
+
+        @Override
+        protected void parsed(String module, int length, long nanos, boolean success) {
+            assertTrue(nanos >= 0);
+            events.add("parsed " + module + " " + length + " " + success);
+        }
+
+        @Override
+        protected void failed(ParserException exception) {
+            events.add("failed " + exception.getLocation().line + ":" + exception.getLocation().column);
+        }
+
+        @Override
+        protected void backtracked(String module, int from, int to) {
+            events.add("backtracked " + from + " " + to);
+        }
+    }
+}
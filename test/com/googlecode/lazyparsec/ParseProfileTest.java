@@ -0,0 +1,70 @@
+package com.googlecode.lazyparsec;
+
+import junit.framework.TestCase;
+
+import static com.googlecode.lazyparsec.Scanners.isChar;
+import static com.googlecode.lazyparsec.Scanners.string;
+
+/**
+ * Unit test for {@link ParseProfile}.
+ */
+public class ParseProfileTest extends TestCase {
+
+    public void testInstrument_countsBacktracking() {
+        ParseProfile profile = new ParseProfile();
+        Parser<Void> parser = profile.instrument(Parsers.or(Parsers.sequence(string("fo"), isChar('o')), string("fob")));
+        assertNull(parser.parse("fob"));
+        ParseProfile.Entry fo = entry(profile, "fo");
+        assertEquals(1, fo.getCalls());
+        assertEquals(1, fo.getSuccesses());
+        assertEquals(2, fo.getConsumed());
+        assertEquals(0, fo.getRescanned());
+        ParseProfile.Entry o = entry(profile, "o");
+        assertEquals(1, o.getCalls());
+        assertEquals(1, o.getFailures());
+        ParseProfile.Entry fob = entry(profile, "fob");
+        assertEquals(1, fob.getSuccesses());
+        assertEquals(3, fob.getConsumed());
+        assertEquals(2, fob.getRescanned());
+        assertTrue(fob.getInclusiveNanos() >= fob.getExclusiveNanos());
+    }
+
+    public void testInstrument_recursiveRule() {
+        ParseProfile profile = new ParseProfile();
+        Parser.Reference<Void> ref = Parser.newReference();
+        Parser<Void> parens = Parsers.or(Parsers.sequence(isChar('('), ref.lazy(), isChar(')')), Parsers.<Void>constant(null));
+        ref.set(parens);
+        Parser<Void> parser = profile.instrument(parens);
+        parser.parse("((()))");
+        // not tried where the next character is ')'
+        assertEquals(3, entry(profile, "(").getCalls());
+        assertEquals(3, entry(profile, ")").getSuccesses());
+        profile.clear();
+        assertEquals(0, entry(profile, "(").getCalls());
+        parser.parse("()");
+        assertEquals(1, entry(profile, "(").getCalls());
+    }
+
+    public void testToString() {
+        ParseProfile profile = new ParseProfile();
+        Parser<Void> parser = profile.instrument(Parsers.or(isChar('a'), isChar('b')));
+        parser.parse("b");
+        String report = profile.toString();
+        assertTrue(report, report.startsWith(String.format("%10s", "calls")));
+        assertTrue(report, report.contains(" b\n") || report.contains(" b\r\n"));
+        assertFalse(report, report.contains(" a\n") || report.contains(" a\r\n"));
+    }
+
+    public void testProfile() {
+        ParseProfile profile = new ParseProfile();
+        Parsers.profile(isChar('a'), profile).parse("a");
+        assertEquals(1, entry(profile, "a").getSuccesses());
+    }
+
+    private static ParseProfile.Entry entry(ParseProfile profile, String name) {
+        for (ParseProfile.Entry entry : profile.entries()) {
+            if (entry.getName().equals(name)) return entry;
+        }
+        throw new AssertionError(name + " not in " + profile.entries());
+    }
+}
@@ -0,0 +1,86 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+import com.googlecode.totallylazy.Callable1;
+import junit.framework.TestCase;
+
+import java.util.List;
+
+import static com.googlecode.lazyparsec.Scanners.isChar;
+
+/**
+ * Unit test for {@link ParseSession}.
+ */
+public class ParseSessionTest extends TestCase {
+
+    public void testParse() {
+        ParseSession<String> session = Scanners.IDENTIFIER.newSession();
+        assertEquals("foo", session.parse("foo"));
+        assertEquals("bar", session.parse("bar"));
+        assertEquals("x", session.parse("x", "module"));
+    }
+
+    public void testParse_afterFailure() {
+        ParseSession<String> session = Scanners.WHITESPACES.optional().next(Scanners.IDENTIFIER).newSession();
+        try {
+            session.parse("\nfoo bar", "module");
+            fail();
+        } catch (ParserException e) {
+            assertEquals("module", e.getModuleName());
+            assertEquals(2, e.getLocation().line);
+            assertEquals(4, e.getLocation().column);
+        }
+        assertEquals("foo", session.parse("foo"));
+        try {
+            session.parse("foo bar");
+            fail();
+        } catch (ParserException e) {
+            assertNull(e.getModuleName());
+            assertEquals(1, e.getLocation().line);
+            assertEquals(4, e.getLocation().column);
+            assertTrue(e.getMessage(), e.getMessage().contains("EOF expected"));
+        }
+    }
+
+    public void testParse_tokens() {
+        Terminals terminals = Terminals.caseSensitive(new String[]{"+"}, new String[0]);
+        Parser<Integer> count = Parsers.ANY_TOKEN.many().map(new Callable1<List<Object>, Integer>() {
+            public Integer call(List<Object> tokens) {
+                return tokens.size();
+            }
+        }).from(Parsers.or(terminals.tokenizer(), Scanners.INTEGER), Scanners.WHITESPACES);
+        ParseSession<Integer> session = count.newSession();
+        assertEquals(5, (int) session.parse("1 + 2 + 3"));
+        assertEquals(1, (int) session.parse("1"));
+        assertEquals(3, (int) session.parse(" 1  +  2 "));
+    }
+
+    public void testParseOrNull() {
+        ParseSession<String> session = Scanners.IDENTIFIER.newSession();
+        assertNull(session.parseOrNull("foo bar"));
+        assertEquals("foo", session.parseOrNull("foo"));
+        try {
+            session.parse("foo bar");
+            fail();
+        } catch (ParserException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("EOF expected"));
+        }
+    }
+
+    public void testMatches() {
+        ParseSession<String> session = Scanners.IDENTIFIER.newSession();
+        assertTrue(session.matches("foo"));
+        assertFalse(session.matches("foo bar"));
+        assertEquals("bar", session.parse("bar"));
+    }
+
+    public void testParse_packrat() {
+        Parser.Reference<String> ref = Parser.newReference();
+        Parser<String> expr = ref.lazy();
+        ref.set(Parsers.or(expr.followedBy(isChar('!')).source(), Scanners.IDENTIFIER));
+        ParseSession<String> session = expr.packrat().newSession();
+        assertEquals("a!!", session.parse("a!!"));
+        assertEquals("b", session.parse("b"));
+        assertEquals("c!", session.parse("c!"));
+    }
+}
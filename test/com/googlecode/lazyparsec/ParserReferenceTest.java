@@ -1,9 +1,13 @@
 package com.googlecode.lazyparsec;
 
+import com.googlecode.lazyparsec.error.ParserException;
+import com.googlecode.totallylazy.Callable1;
+import com.googlecode.totallylazy.Callable3;
 import junit.framework.TestCase;
 
 import static com.googlecode.lazyparsec.Asserts.assertFailure;
 import static com.googlecode.lazyparsec.Asserts.assertParser;
+import static com.googlecode.lazyparsec.Scanners.isChar;
 
 /**
  * Unit test for {@link Parser.Reference}.
@@ -28,4 +32,93 @@ public class ParserReferenceTest extends TestCase {
         assertNull(ref.get());
         assertFailure(ref.lazy(), "", 1, 1, "Uninitialized lazy parser reference");
     }
+
+    public void testLazy_leftRecursion() {
+        Parser.Reference<String> ref = Parser.newReference();
+        Parser<String> expr = ref.lazy();
+        ref.set(Parsers.or(Parsers.sequence(expr, isChar('.'), Scanners.IDENTIFIER,
+                new Callable3<String, Void, String, String>() {
+                    public String call(String target, Void dot, String member) {
+                        return "(" + target + "." + member + ")";
+                    }
+                }), Scanners.IDENTIFIER));
+        Parser<String> parser = expr.packrat();
+        assertParser(parser, "a", "a");
+        assertParser(parser, "a.b.c", "((a.b).c)");
+        assertParser(parser, "a.b.", "(a.b)", ".");
+        assertFailure(parser, ".a", 1, 1);
+    }
+
+    public void testLazy_indirectLeftRecursion() {
+        Parser.Reference<String> a = Parser.newReference();
+        Parser.Reference<String> b = Parser.newReference();
+        a.set(Parsers.or(b.lazy().followedBy(isChar('x')).source(), isChar('y').source()));
+        b.set(a.lazy().followedBy(isChar('z')).source());
+        Parser<String> parser = a.lazy().packrat();
+        assertParser(parser, "y", "y");
+        assertParser(parser, "yzx", "yzx");
+        assertParser(parser, "yzxzx", "yzxzx");
+        assertParser(parser, "yzxz", "yzx", "z");
+        assertParser(b.lazy().packrat(), "yzxz", "yzxz");
+    }
+
+    public void testLazy_longLeftRecursiveChain() {
+        Parser.Reference<Integer> ref = Parser.newReference();
+        Parser<Integer> expr = ref.lazy();
+        ref.set(Parsers.or(Parsers.sequence(expr, isChar('+'), isChar('1'),
+                new Callable3<Integer, Void, Void, Integer>() {
+                    public Integer call(Integer sum, Void plus, Void one) {
+                        return sum + 1;
+                    }
+                }), isChar('1').retn(1)));
+        StringBuilder source = new StringBuilder("1");
+        for (int i = 1; i < 100000; i++) {
+            source.append("+1");
+        }
+        assertEquals(100000, expr.packrat().parse(source).intValue());
+    }
+
+    public void testLazy_maxDepth() {
+        Parser<Void> parens = parens();
+        assertParser(parens.maxDepth(10), "((((x))))", null);
+        assertFailure(parens.maxDepth(3), "((((x))))", 1, 4, "maximum nesting depth of 3 exceeded");
+    }
+
+    public void testLazy_stackOverflow() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 1000000; i++) {
+            source.append('(');
+        }
+        try {
+            parens().parse(source);
+            fail();
+        } catch (ParserException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("rules deep for the stack"));
+        }
+    }
+
+    public void testLazy_stackOverflowNotNested() {
+        Parser<Integer> parser = isChar('x').map(new Callable1<Void, Integer>() {
+            public Integer call(Void value) {
+                return depth(0);
+            }
+        });
+        try {
+            parser.parse("x");
+            fail();
+        } catch (ParserException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("stack overflow while parsing"));
+            assertFalse(e.getMessage(), e.getMessage().contains("maxDepth"));
+        }
+    }
+
+    private static int depth(int n) {
+        return depth(n + 1) + 1;
+    }
+
+    private static Parser<Void> parens() {
+        Parser.Reference<Void> ref = Parser.newReference();
+        ref.set(Parsers.or(Parsers.between(isChar('('), ref.lazy(), isChar(')')), isChar('x')));
+        return ref.lazy();
+    }
 }
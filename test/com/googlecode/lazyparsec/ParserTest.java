@@ -46,6 +46,34 @@ public class ParserTest extends BaseMockTests {
         }
     }
 
+    public void testParseOrNull() {
+        assertEquals(new Integer(123), INTEGER.parseOrNull("123"));
+        assertNull(INTEGER.parseOrNull("x"));
+        assertNull(INTEGER.parseOrNull("123 "));
+        Parser<List<String>> integers = Terminals.IntegerLiteral.PARSER.many()
+                .from(Terminals.IntegerLiteral.TOKENIZER, Scanners.WHITESPACES);
+        assertEquals(Arrays.asList("1", "23"), integers.parseOrNull("1 23"));
+        assertNull(integers.parseOrNull("1 x"));
+    }
+
+    public void testMatches() {
+        assertTrue(INTEGER.matches("123"));
+        assertFalse(INTEGER.matches("12a"));
+        assertTrue(Parsers.constant(null).matches(""));
+        Parser.Reference<Integer> ref = Parser.newReference();
+        ref.set(Parsers.or(ref.lazy().followedBy(COMMA), INTEGER));
+        Parser<Integer> parser = ref.lazy().packrat();
+        assertTrue(parser.matches("1,,"));
+        assertFalse(parser.matches(",1"));
+    }
+
+    public void testParse_manyExpectedErrors() {
+        Parser<Object> parser = Parsers.or(areChars("ab"), areChars("ac"), areChars("ad"), areChars("ae"),
+                areChars("af"), areChars("ag"), areChars("ah"), areChars("ai"), areChars("aj"), areChars("ak"));
+        assertFailure(parser, "ax", 1, 2,
+                "b, c, d, e, f, g, h, i, j or k expected, x encountered.");
+    }
+
     public void testSource() {
         assertEquals("source", FOO.source().toString());
         assertParser(FOO.source(), "", "");
@@ -249,6 +277,120 @@ public class ParserTest extends BaseMockTests {
         assertFailure(areChars("ab").atomic(), "a", 1, 2);
     }
 
+    public void testCommit() {
+        Parser<String> parser = Parsers.or(
+                Scanners.string("ab").commit().next(Scanners.isChar('c')).retn("abc"), Scanners.string("abd").retn("abd"));
+        assertParser(parser, "abc", "abc");
+        assertFailure(parser, "abd", 1, 3, "c expected, d encountered.");
+        final ScannerState state = new ScannerState(null, "abc", 0, new DefaultSourceLocator("abc"));
+        final int[] backtrackPoint = {-1};
+        Parser<?> committed = Parsers.or(Scanners.string("ab").commit().next(Parsers.runnable(new Runnable() {
+            public void run() {
+                backtrackPoint[0] = state.backtrackPoint();
+            }
+        })), Scanners.string("abd"));
+        Parsers.parse(state, committed.followedBy(Scanners.isChar('c')));
+        assertEquals(2, backtrackPoint[0]);
+    }
+
+    public void testMemoize() {
+        final int[] runs = {0};
+        Parser<Character> a = Parsers.runnable(new Runnable() {
+            public void run() {
+                runs[0]++;
+            }
+        }).next(isChar('a')).memoize();
+        assertEquals("sequence", a.toString());
+        Parser<Character> parser = Parsers.or(a.next(isChar('b')), a.next(isChar('c')));
+        assertParser(parser, "ac", 'c');
+        assertEquals(1, runs[0]);
+        assertFailure(parser, "ad", 1, 2, "b or c expected, d encountered.");
+        assertFailure(parser, "d", 1, 1, "a expected, d encountered.");
+    }
+
+    public void testMemoize_errorsSuppressed() {
+        final int[] runs = {0};
+        Parser<Character> a = Parsers.runnable(new Runnable() {
+            public void run() {
+                runs[0]++;
+            }
+        }).next(isChar('a')).memoize();
+        Parser<Character> parser = Parsers.or(
+                a.fails().next(isChar('x')), a.fails().next(isChar('y')), a.next(isChar('b')));
+        assertFailure(parser, "d", 1, 1, "x, y or a expected, d encountered.");
+        // the outcome memoized while errors were suppressed is replayed only while they are.
+        assertEquals(2, runs[0]);
+    }
+
+    public void testMemoize_partialMatch() {
+        Parser<Character> ab = areChars("ab").memoize();
+        assertParser(Parsers.or(ab.next(isChar('c')), ab.atomic()), "ab", 'b');
+        assertFailure(Parsers.plus(ab, isChar('a')), "ac", 1, 2, "b expected, c encountered.");
+        assertParser(ab.many(), "abab", Arrays.asList('b', 'b'));
+    }
+
+    public void testLink() {
+        Parser.Reference<Integer> ref = Parser.newReference();
+        Parser<Integer> term = Parsers.or(INTEGER, Parsers.between(isChar('('), ref.lazy(), isChar(')')));
+        ref.set(term.infixl(isChar('+').retn(new Callable2<Integer, Integer, Integer>() {
+            public Integer call(Integer a, Integer b) {
+                return a + b;
+            }
+        })));
+        Parser<Integer> parser = ref.lazy().link();
+        assertEquals("lazy", parser.toString());
+        assertParser(parser, "1+(2+3)", 6);
+        assertFailure(ref.lazy(), "1+(2+", 1, 6, "integer or ( expected, EOF encountered.");
+        assertFailure(parser, "1+(2+", 1, 6, "integer or ( expected, EOF encountered.");
+        assertParser(parser.packrat(), "(1)+2", 3);
+    }
+
+    public void testPackrat() {
+        final int[] runs = {0};
+        Parser.Reference<Character> ref = Parser.newReference();
+        ref.set(Parsers.runnable(new Runnable() {
+            public void run() {
+                runs[0]++;
+            }
+        }).next(isChar('a')));
+        Parser<Character> a = ref.lazy();
+        Parser<Character> parser = Parsers.or(a.next(isChar('b')), a.next(isChar('c')));
+        assertParser(parser, "ac", 'c');
+        assertEquals(2, runs[0]);
+        runs[0] = 0;
+        assertEquals("or", parser.packrat().toString());
+        assertParser(parser.packrat(), "ac", 'c');
+        assertEquals(1, runs[0]);
+        assertFailure(parser.packrat(), "ad", 1, 2, "b or c expected, d encountered.");
+    }
+
+    public void testPackrat_errorsSuppressed() {
+        final int[] runs = {0};
+        Parser.Reference<Character> ref = Parser.newReference();
+        ref.set(Parsers.runnable(new Runnable() {
+            public void run() {
+                runs[0]++;
+            }
+        }).next(isChar('a')));
+        Parser<Character> a = ref.lazy();
+        Parser<Character> parser = Parsers.or(
+                a.fails().next(isChar('x')), a.fails().next(isChar('y')), a.next(isChar('b'))).packrat();
+        assertFailure(parser, "d", 1, 1, "x, y or a expected, d encountered.");
+        assertEquals(2, runs[0]);
+    }
+
+    public void testPackrat_tokenLevel() {
+        Parser.Reference<String> ref = Parser.newReference();
+        ref.set(Terminals.Identifier.PARSER);
+        Parser<String> word = ref.lazy();
+        Parser<String> parser = Parsers.or(word.followedBy(Terminals.IntegerLiteral.PARSER), word)
+                .from(Terminals.Identifier.TOKENIZER.or(Terminals.IntegerLiteral.TOKENIZER), Scanners.WHITESPACES)
+                .packrat();
+        assertParser(parser, "foo 1", "foo");
+        assertParser(parser, "foo", "foo");
+        assertFailure(parser, "foo bar", 1, 5);
+    }
+
     public void testStep() {
         assertEquals(INTEGER.toString(), INTEGER.step(0).toString());
         assertParser(Parsers.plus(areChars("ab").step(0).next(isChar('c')), areChars("ab")), "ab", 'b');
@@ -319,6 +461,24 @@ public class ParserTest extends BaseMockTests {
         assertFailure(INTEGER.map(callable1), "", 1, 1, "integer expected, EOF encountered.");
     }
 
+    public void testMap_throws() throws Exception {
+        expect(callable1.call(12)).andThrow(new IllegalStateException());
+        replay();
+        Parser<String> parser = Parsers.or(INTEGER.map(callable1).atomic(), FOO).many1().source();
+        assertFailure(isChar('a').next(parser), "a12", 1, 4, IllegalStateException.class);
+    }
+
+    public void testMap_throwsOnTokenLevel() throws Exception {
+        expect(callable1.call(12)).andThrow(new java.io.IOException());
+        replay();
+        Parser<String> parser = Terminals.IntegerLiteral.PARSER.map(new Callable1<String, Integer>() {
+            public Integer call(String s) {
+                return Integer.valueOf(s);
+            }
+        }).map(callable1).from(Terminals.IntegerLiteral.TOKENIZER, Scanners.WHITESPACES);
+        assertFailure(parser, " 12", 1, 4, java.io.IOException.class);
+    }
+
     public void testSepBy1() {
         Parser<List<Integer>> parser = INTEGER.sepBy1(isChar(','));
         assertListParser(parser, "1", 1);
@@ -10,6 +10,8 @@ import com.googlecode.totallylazy.Quadruple;
 import com.googlecode.totallylazy.Quintuple;
 import com.googlecode.totallylazy.Triple;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.Arrays;
 import java.util.List;
 
@@ -452,6 +454,61 @@ public class ParsersTest extends BaseMockTests {
         assertEquals("shortest", Parsers.shortest(isChar('a'), isChar('b')).toString());
     }
 
+    public void testCut_or() {
+        Parser<String> ab = Parsers.sequence(Scanners.isChar('a'), Parsers.cut(), Scanners.isChar('b')).retn("ab");
+        Parser<String> parser = Parsers.or(ab, Scanners.string("ac").retn("ac"));
+        assertParser(parser, "ab", "ab");
+        assertFailure(parser, "ac", 1, 2, "b expected, c encountered.");
+        assertParser(Parsers.or(ab, Scanners.string("c").retn("c")), "c", "c");
+        assertEquals("cut", Parsers.cut().toString());
+    }
+
+    public void testCut_plus() {
+        Parser<Void> parser = Parsers.plus(
+                Parsers.sequence(Parsers.cut(), Scanners.isChar('a')), Scanners.isChar('b'));
+        assertParser(parser, "a", null);
+        assertFailure(parser, "b", 1, 1, "a expected, b encountered.");
+    }
+
+    public void testCut_longest() {
+        Parser<String> parser = Parsers.longest(
+                Scanners.isChar('a').commit().retn("a"), Scanners.string("ab").retn("ab"));
+        assertParser(parser.followedBy(Scanners.isChar('b')), "ab", "a");
+        assertParser(Parsers.longest(Scanners.isChar('a').retn("a"), Scanners.string("ab").retn("ab")), "ab", "ab");
+    }
+
+    public void testCut_onlyInnermostChoice() {
+        Parser<Void> inner = Parsers.or(
+                Parsers.sequence(Scanners.isChar('a'), Parsers.cut(), Scanners.isChar('b')), Scanners.isChar('x'));
+        Parser<Void> parser = Parsers.or(Parsers.or(inner, Scanners.string("ac")), Scanners.string("ad"));
+        assertParser(parser, "ad", null);
+        assertParser(Parsers.or(Parsers.sequence(inner, Scanners.isChar('c')), Scanners.string("abd")), "abd", null);
+    }
+
+    public void testCut_innerChoiceOnStream() throws IOException {
+        Parser<Void> inner = Parsers.or(Parsers.sequence(
+                Scanners.isChar('a').skipMany(), Parsers.cut(), Scanners.isChar('b').skipMany(), Scanners.isChar('c')), Scanners.isChar('x'));
+        Parser<Void> parser = Parsers.or(
+                inner, Parsers.sequence(Scanners.isChar('a').skipMany(), Scanners.isChar('b').skipMany(), Scanners.isChar('d')));
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 300000; i++) {
+            source.append('a');
+        }
+        for (int i = 0; i < 2000000; i++) {
+            source.append('b');
+        }
+        source.append('d');
+        assertNull(parser.parse(source));
+        assertNull(parser.parse(new StringReader(source.toString())));
+    }
+
+    public void testCut_memoized() {
+        Parser<Void> ab = Parsers.sequence(Scanners.isChar('a'), Parsers.cut(), Scanners.isChar('b')).memoize();
+        Parser<Void> parser = Parsers.or(Parsers.or(ab, Scanners.string("ac")), ab, Scanners.string("ad"));
+        assertFailure(parser, "ad", 1, 2);
+        assertFailure(Parsers.or(ab, Scanners.string("ac")).packrat(), "ac", 1, 2);
+    }
+
     public void testExpect() {
         assertFailure(Parsers.expect("foo"), "", 1, 1, "foo expected");
         assertEquals("foo", Parsers.expect("foo").toString());
@@ -0,0 +1,53 @@
+package com.googlecode.lazyparsec;
+
+import junit.framework.TestCase;
+
+import static com.googlecode.lazyparsec.Scanners.isChar;
+import static com.googlecode.lazyparsec.Scanners.string;
+
+/**
+ * Unit test for {@link PathologicalInputs}.
+ */
+public class PathologicalInputsTest extends TestCase {
+
+    public void testSearch_exponential() {
+        // alternatives sharing the recursive prefix re-parse it in each alternative.
+        Parser.Reference<Void> ref = Parser.newReference();
+        Parser<Void> parser = Parsers.or(
+                Parsers.sequence(isChar('('), ref.lazy(), isChar(')')),
+                Parsers.sequence(isChar('('), ref.lazy(), isChar(']')),
+                isChar('x'));
+        ref.set(parser);
+        PathologicalInputs.Result result = PathologicalInputs.search(parser, 40, 2000, 100000);
+        assertTrue(result.toString(), result.isLimitReached());
+        assertTrue(result.getInput(), result.getInput().length() <= 40);
+        assertTrue(result.toString().startsWith("over 100001 steps for "));
+    }
+
+    public void testSearch_memoized() {
+        Parser.Reference<Void> ref = Parser.newReference();
+        Parser<Void> parser = Parsers.or(
+                Parsers.sequence(isChar('('), ref.lazy(), isChar(')')),
+                Parsers.sequence(isChar('('), ref.lazy(), isChar(']')),
+                isChar('x'));
+        ref.set(parser);
+        PathologicalInputs.Result result = PathologicalInputs.search(parser.packrat(), 40, 2000, 100000);
+        assertFalse(result.toString(), result.isLimitReached());
+        assertTrue(result.toString(), result.getSteps() < 40 * 40);
+    }
+
+    public void testSearch_linear() {
+        Parser<?> parser = Parsers.or(string("keyword"), string("keyboard"), Scanners.IDENTIFIER)
+                .sepBy(isChar(','));
+        PathologicalInputs.Result result = PathologicalInputs.search(parser, 30, 500, 100000);
+        assertFalse(result.isLimitReached());
+        assertTrue(result.toString(), result.getSteps() > 0);
+        assertTrue(result.toString(), result.getSteps() < 30 * 30);
+    }
+
+    public void testSearch_deterministic() {
+        Parser<?> parser = Parsers.or(string("ab"), string("ac")).many();
+        assertEquals(PathologicalInputs.search(parser, 10).toString(),
+                PathologicalInputs.search(parser, 10).toString());
+    }
+}
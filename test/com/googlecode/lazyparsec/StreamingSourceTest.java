@@ -0,0 +1,212 @@
+package com.googlecode.lazyparsec;
+
+import com.googlecode.lazyparsec.error.ParserException;
+import com.googlecode.lazyparsec.pattern.CharacterPredicates;
+import com.googlecode.lazyparsec.pattern.Patterns;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+
+import static com.googlecode.lazyparsec.Scanners.isChar;
+
+/**
+ * Unit test for {@link StreamingSource}.
+ */
+public class StreamingSourceTest extends TestCase {
+
+    /**
+     * Produces {@code count} times {@code record} without keeping them in memory.
+     */
+    private static final class Repeat implements Readable {
+        private final String record;
+        private int count;
+        private int offset = 0;
+
+        Repeat(String record, int count) {
+            this.record = record;
+            this.count = count;
+        }
+
+        public int read(CharBuffer buffer) {
+            if (count == 0) return -1;
+            int n = 0;
+            while (count > 0 && buffer.hasRemaining()) {
+                buffer.put(record.charAt(offset++));
+                n++;
+                if (offset == record.length()) {
+                    offset = 0;
+                    count--;
+                }
+            }
+            return n;
+        }
+    }
+
+    public void testLookahead() {
+        StreamingSource source = new StreamingSource(new Repeat("ab\n", 100000));
+        assertEquals(0, source.length());
+        assertTrue(source.lookahead(0) >= StreamingSource.LOOKAHEAD);
+        assertEquals('a', source.charAt(0));
+        assertEquals('\n', source.charAt(2));
+        assertEquals("b\na", source.subSequence(1, 4));
+        assertEquals(300000, source.lookahead(300000));
+        assertEquals(300000, source.length());
+    }
+
+    public void testLocate() {
+        StreamingSource source = new StreamingSource(new StringReader("ab\ncd"));
+        source.lookahead(0);
+        assertEquals(1, source.locate(1).line);
+        assertEquals(2, source.locate(1).column);
+        assertEquals(2, source.locate(4).line);
+        assertEquals(2, source.locate(4).column);
+        assertEquals(3, source.locate(5).column);
+    }
+
+    public void testRelease() {
+        StreamingSource source = new StreamingSource(new Repeat("ab\n", 1000000));
+        ScannerState reader = new ScannerState(null, source, 0, source);
+        for (int i = 0; i < 3000000; i += 3000) {
+            reader.at = i;
+            source.lookahead(i);
+            assertEquals('a', source.charAt(i));
+            assertTrue(source.toString().length() < 4 * StreamingSource.LOOKAHEAD);
+        }
+        assertEquals(999001, source.locate(2997000).line);
+        try {
+            source.charAt(0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    public void testParse_committed() {
+        StreamingSource source = new StreamingSource(new Repeat("a;\n", 500000));
+        Retained retained = new Retained(source);
+        Parsers.sequence(isChar('a'), isChar(';'), isChar('\n'), Parsers.cut(), retained.record())
+                .skipMany().parse(source, null, source);
+        retained.assertBounded(500000);
+    }
+
+    public void testParse_repeated() {
+        StreamingSource source = new StreamingSource(new Repeat("a;\n", 500000));
+        Retained retained = new Retained(source);
+        Parsers.sequence(isChar('a'), isChar(';'), isChar('\n'), retained.record())
+                .skipMany().parse(source, null, source);
+        retained.assertBounded(500000);
+    }
+
+    public void testParse_nestedCut() {
+        StreamingSource source = new StreamingSource(new Repeat("a;\n", 500000));
+        Retained retained = new Retained(source);
+        Parser<?> records = Parsers.or(
+                Parsers.sequence(isChar('a'), Parsers.cut(), isChar(';'), isChar('\n'), retained.record()),
+                isChar('b')).skipMany();
+        Parsers.or(Parsers.sequence(isChar('a'), Parsers.cut(), isChar(';'), isChar('\n'), records), isChar('x'))
+                .parse(source, null, source);
+        retained.assertBounded(499999);
+    }
+
+    public void testParse_cutInsideEnclosingChoice() throws IOException {
+        Parser<?> records = Parsers.sequence(isChar('a'), Parsers.cut(), isChar(';'), isChar('\n')).skipMany();
+        Parser<?> parser = Parsers.or(
+                Parsers.or(Parsers.sequence(records, isChar('.')), isChar('x')),
+                Parsers.sequence(records, isChar('!')));
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < StreamingSource.LOOKAHEAD; i++) {
+            source.append("a;\n");
+        }
+        parser.parse(new StringReader(source.append('!').toString()));
+        try {
+            parser.parse(new StringReader(repeat('a', StreamingSource.LOOKAHEAD) + "?"));
+            fail();
+        } catch (ParserException e) {
+            assertEquals(2, e.getLocation().column);
+        }
+    }
+
+    public void testParse_readable() throws IOException {
+        assertEquals("foo", Scanners.IDENTIFIER.parse(new Repeat("foo", 1)));
+        try {
+            Parsers.sequence(Scanners.IDENTIFIER, isChar(';'), Parsers.cut(), isChar('\n'), Scanners.IDENTIFIER)
+                    .parse(new StringReader("foo;\nbar x"), "module");
+            fail();
+        } catch (ParserException e) {
+            assertEquals("module", e.getModuleName());
+            assertEquals(2, e.getLocation().line);
+            assertEquals(4, e.getLocation().column);
+        }
+    }
+
+    public void testParse_longerThanLookahead() throws IOException {
+        int length = StreamingSource.LOOKAHEAD + StreamingSource.LOOKAHEAD / 2;
+        assertEquals(length, Scanners.IDENTIFIER.parse(new Repeat("a", length)).length());
+        Scanners.JAVA_BLOCK_COMMENT.parse(new StringReader("/*" + repeat('x', length) + "*/"));
+        Scanners.pattern(Patterns.regex("[a-z;]+"), "letters").parse(new Repeat("abc;", length));
+        Scanners.many1(CharacterPredicates.IS_ALPHA).parse(new Repeat("b", 4 * length));
+        Parsers.sequence(isChar(';'), Parsers.cut(), Scanners.IDENTIFIER)
+                .parse(new StringReader(";" + repeat('a', 2 * length)));
+        try {
+            Scanners.IDENTIFIER.parse(new StringReader(repeat('a', length) + ";"));
+            fail();
+        } catch (ParserException e) {
+            assertEquals(length + 1, e.getLocation().column);
+        }
+    }
+
+    public void testParse_readFailure() {
+        Reader reader = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("disk gone");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            Scanners.IDENTIFIER.parse(reader);
+            fail();
+        } catch (IOException e) {
+            assertEquals("disk gone", e.getMessage());
+        }
+    }
+
+    /**
+     * Records how many characters are kept in memory while the records of a source are parsed.
+     */
+    private static final class Retained {
+        private final StreamingSource source;
+        private int records = 0;
+        private int max = 0;
+
+        Retained(StreamingSource source) {
+            this.source = source;
+        }
+
+        Parser<?> record() {
+            return Parsers.runnable(new Runnable() {
+                public void run() {
+                    if (records++ % 1000 == 0) max = Math.max(max, source.toString().length());
+                }
+            });
+        }
+
+        void assertBounded(int expectedRecords) {
+            assertEquals(expectedRecords, records);
+            assertTrue(max + " characters kept", max < 4 * StreamingSource.LOOKAHEAD);
+        }
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
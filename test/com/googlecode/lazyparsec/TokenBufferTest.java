@@ -0,0 +1,40 @@
+package com.googlecode.lazyparsec;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Unit test for {@link TokenBuffer}.
+ */
+public class TokenBufferTest extends TestCase {
+
+    public void testAdd() {
+        TokenBuffer buffer = new TokenBuffer(0);
+        for (int i = 0; i < 100; i++) {
+            buffer.add(i * 2, 1, "t" + i);
+        }
+        assertEquals(100, buffer.size());
+        assertEquals(198, buffer.index(99));
+        assertEquals(1, buffer.length(99));
+        assertEquals("t99", buffer.value(99));
+        assertEquals(new Token(10, 1, "t5"), buffer.token(5));
+    }
+
+    public void testOf() {
+        TokenBuffer buffer = TokenBuffer.of(Arrays.asList(new Token(0, 2, "if"), new Token(3, 1, "x")));
+        assertEquals(2, buffer.size());
+        assertEquals(new Token(3, 1, "x"), buffer.token(1));
+    }
+
+    public void testLexer() {
+        Terminals terminals = Terminals.caseSensitive(new String[]{"+"}, new String[0]);
+        Parser<?> tokenizer = Parsers.or(terminals.tokenizer(), Scanners.INTEGER);
+        TokenBuffer buffer = new LexerParser(tokenizer, Scanners.WHITESPACES).parse(" 1 + 23 ");
+        assertEquals(3, buffer.size());
+        assertEquals(new Token(5, 2, "23"), buffer.token(2));
+        assertEquals(0, new LexerParser(tokenizer, Scanners.WHITESPACES).parse("  ").size());
+        assertEquals(tokenizer.lexer(Scanners.WHITESPACES).parse(" 1 + 23 "),
+                Arrays.asList(buffer.token(0), buffer.token(1), buffer.token(2)));
+    }
+}
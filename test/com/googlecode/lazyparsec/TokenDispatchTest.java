@@ -0,0 +1,43 @@
+package com.googlecode.lazyparsec;
+
+import junit.framework.TestCase;
+
+import static com.googlecode.lazyparsec.Asserts.assertFailure;
+import static com.googlecode.lazyparsec.Asserts.assertParser;
+
+/**
+ * Unit test for {@link TokenDispatch}.
+ */
+public class TokenDispatchTest extends TestCase {
+
+    private static final Terminals TERMINALS =
+            Terminals.caseSensitive(new String[]{"+", "-"}, new String[]{"if", "then", "else"});
+
+    public void testOf() {
+        assertNotNull(TokenDispatch.of(new Parser<?>[]{TERMINALS.token("if"), Parsers.ANY_TOKEN}));
+        assertNull(TokenDispatch.of(new Parser<?>[]{Parsers.ANY_TOKEN, Terminals.Identifier.PARSER}));
+        assertNull(CharDispatch.of(new Parser<?>[]{TERMINALS.token("if"), TERMINALS.token("then")}));
+    }
+
+    public void testOr() {
+        Parser<Integer> parser = Parsers.or(
+                TERMINALS.token("if").retn(1), TERMINALS.token("then").retn(2),
+                TERMINALS.token("+").next(TERMINALS.token("-")).retn(3), Terminals.Identifier.PARSER.retn(4));
+        assertTrue(((OrParser<Integer>) Parsers.optimize(parser)).dispatch instanceof TokenDispatch);
+        Parser<Integer> lexed = parser.from(TERMINALS.tokenizer(), Scanners.WHITESPACES);
+        assertParser(lexed, "then", 2);
+        assertParser(lexed, "+ -", 3);
+        assertParser(lexed, "foo", 4);
+        assertFailure(lexed, "else", 1, 1, "if, then, + or IDENTIFIER expected, else encountered.");
+        assertFailure(lexed, "+ +", 1, 3, "- expected, + encountered.");
+        assertFailure(lexed, "", 1, 1, "if, then, + or IDENTIFIER expected, EOF encountered.");
+    }
+
+    public void testPlus() {
+        Parser<Token> parser = TERMINALS.token("if", "then", "else");
+        assertTrue(((SumParser<Token>) Parsers.optimize(parser)).dispatch instanceof TokenDispatch);
+        Parser<String> lexed = parser.source().from(TERMINALS.tokenizer(), Scanners.WHITESPACES);
+        assertParser(lexed, "else", "else");
+        assertFailure(lexed, "+", 1, 1, "if, then or else expected, + encountered.");
+    }
+}
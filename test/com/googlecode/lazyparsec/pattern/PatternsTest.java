@@ -25,6 +25,32 @@ public class PatternsTest extends TestCase {
         assertEquals(MISMATCH, NEVER.match("abc", 1, 2));
     }
 
+    public void testMayStartWith() {
+        assertFalse(NEVER.mayStartWith('a'));
+        assertFalse(NEVER.mayMatchEmpty());
+        assertFalse(ALWAYS.mayStartWith('a'));
+        assertTrue(ALWAYS.mayMatchEmpty());
+        assertTrue(Patterns.isChar('a').mayStartWith('a'));
+        assertFalse(Patterns.isChar('a').mayStartWith('b'));
+        assertTrue(Patterns.string("ab").mayStartWith('a'));
+        assertFalse(Patterns.string("ab").mayStartWith('b'));
+        assertTrue(Patterns.string("").mayMatchEmpty());
+        assertTrue(Patterns.stringCaseInsensitive("ab").mayStartWith('A'));
+        assertFalse(Patterns.INTEGER.mayStartWith('a'));
+        assertFalse(Patterns.INTEGER.mayMatchEmpty());
+        assertTrue(Patterns.DECIMAL.mayStartWith('-'));
+        assertTrue(Patterns.DECIMAL.mayStartWith('.'));
+        assertTrue(Patterns.DECIMAL.mayStartWith('1'));
+        assertFalse(Patterns.DECIMAL.mayStartWith('a'));
+        assertFalse(Patterns.DECIMAL.mayMatchEmpty());
+        assertTrue(Patterns.WORD.mayStartWith('_'));
+        assertFalse(Patterns.WORD.mayStartWith('1'));
+        assertTrue(Patterns.many(CharacterPredicates.IS_DIGIT).mayMatchEmpty());
+        assertFalse(Patterns.EOF.mayStartWith('a'));
+        assertTrue(Patterns.EOF.mayMatchEmpty());
+        assertTrue(Patterns.regex("a").mayStartWith('b'));
+    }
+
     public void testAnyChar() {
         assertEquals(1, Patterns.ANY_CHAR.match("a", 0, 1));
         assertEquals(1, Patterns.ANY_CHAR.match("abc", 0, 1));
@@ -70,6 +70,15 @@ public class IntListTest extends TestCase {
         assertEqualArray(intList.toArray(), 2);
     }
 
+    public void testClear() {
+        IntList intList = new IntList(0);
+        intList.add(1).add(2);
+        intList.clear();
+        assertEquals(0, intList.size());
+        intList.add(3);
+        assertEqualArray(intList.toArray(), 3);
+    }
+
     public void testEnsureCapacity() {
         IntList intList = new IntList(0);
         intList.add(1);